@@ -0,0 +1,58 @@
+package com.example.rag.service;
+
+import com.example.rag.metrics.RagMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the LLM context from retrieved documents, per request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ContextBuildingBenchmark {
+
+    @Param({"5", "20", "100"})
+    private int documents;
+
+    private final RagService ragService = new RagService();
+
+    private List<Document> retrieved;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RagMetrics ragMetrics = new RagMetrics();
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ContextBuilder contextBuilder = new ContextBuilder();
+        ReflectionTestUtils.setField(contextBuilder, "maxTokens", 1500);
+        ReflectionTestUtils.setField(contextBuilder, "mmrLambda", 0.7);
+        ReflectionTestUtils.setField(contextBuilder, "duplicateThreshold", 0.9);
+        ReflectionTestUtils.setField(ragService, "ragMetrics", ragMetrics);
+        ReflectionTestUtils.setField(ragService, "contextBuilder", contextBuilder);
+        retrieved = SyntheticData.documents(documents);
+    }
+
+    @Benchmark
+    public String prepareContext() {
+        return ragService.prepareContext(retrieved);
+    }
+}
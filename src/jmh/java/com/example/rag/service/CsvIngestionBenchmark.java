@@ -0,0 +1,71 @@
+package com.example.rag.service;
+
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.model.MacroeconomicIndicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-file CSV parsing and validation over synthetic files of up to a million rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvIngestionBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private final CsvProcessingService csvProcessingService = new CsvProcessingService();
+
+    private Path csvFile;
+
+    private List<MacroeconomicIndicator> parsed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        RagMetrics ragMetrics = new RagMetrics();
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(csvProcessingService, "ragMetrics", ragMetrics);
+        ReflectionTestUtils.setField(csvProcessingService, "readBufferSize", 65536);
+        csvFile = SyntheticData.writeCsv(rows);
+        parsed = csvProcessingService.loadDataFromCsv(csvFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public List<MacroeconomicIndicator> loadDataFromCsv() {
+        return csvProcessingService.loadDataFromCsv(csvFile.toString());
+    }
+
+    @Benchmark
+    public List<MacroeconomicIndicator> filterValidData() {
+        return csvProcessingService.filterValidData(parsed);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.rag.service;
+
+import com.example.rag.model.MacroeconomicIndicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of turning a parsed CSV row into document text and a {@link Document}, cycling
+ * through synthetic datasets so that large row counts exercise cache misses as ingestion does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DocumentConversionBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rows;
+
+    private final VectorStoreService vectorStoreService = new VectorStoreService();
+
+    private MacroeconomicIndicator[] indicators;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indicators = SyntheticData.indicators(rows).toArray(MacroeconomicIndicator[]::new);
+    }
+
+    @Benchmark
+    public String toDocumentText() {
+        return nextIndicator().toDocumentText();
+    }
+
+    @Benchmark
+    public Document convertToDocument() {
+        return vectorStoreService.convertToDocument(nextIndicator(), SyntheticData.SOURCE);
+    }
+
+    private MacroeconomicIndicator nextIndicator() {
+        MacroeconomicIndicator indicator = indicators[next];
+        next = next + 1 == indicators.length ? 0 : next + 1;
+        return indicator;
+    }
+}
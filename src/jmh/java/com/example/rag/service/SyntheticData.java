@@ -0,0 +1,91 @@
+package com.example.rag.service;
+
+import com.example.rag.model.MacroeconomicIndicator;
+import org.springframework.ai.document.Document;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic datasets shaped like the bundled indicator CSV, scaled to any row count.
+ * About one row in twenty is invalid so that filtering has work to do.
+ */
+final class SyntheticData {
+
+    private static final String[] INDICATORS = {
+        "Revenues", "Tax Revenue", "Direct Taxes", "Indirect Taxes", "Grants",
+        "Total Government Expenditures", "Recurrent Expenditure", "Capital Expenditure",
+        "Overall Deficit (including grants)", "Domestic Borrowing", "External Borrowing",
+        "Broad Money (M2)", "Narrow Money (M1)", "Domestic Credit", "Net Foreign Assets"
+    };
+
+    private static final String[] UNITS = {"Annual %\nChange", "Millions of Birr", "% of GDP", "Millions of USD"};
+
+    private static final String[] YEARS = {
+        "2007/08", "2008/09", "2009/10", "2010/11", "2011/12",
+        "2012/13", "2013/14", "2014/15", "2015/16", "2016/17"
+    };
+
+    static final String SOURCE = "synthetic-indicators.csv";
+
+    private SyntheticData() {
+    }
+
+    static List<MacroeconomicIndicator> indicators(int rows) {
+        Random random = new Random(42);
+        List<MacroeconomicIndicator> indicators = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            indicators.add(indicator(row, random));
+        }
+        return indicators;
+    }
+
+    static Path writeCsv(int rows) throws IOException {
+        Path file = Files.createTempFile("synthetic-indicators-", ".csv");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("Indicators,Units,Year,Value\n");
+            for (int row = 0; row < rows; row++) {
+                MacroeconomicIndicator indicator = indicator(row, random);
+                writer.write(quote(indicator.getIndicators()) + "," + quote(indicator.getUnits()) + ","
+                        + indicator.getYear() + "," + indicator.getValue() + "\n");
+            }
+        }
+        return file;
+    }
+
+    static List<Document> documents(int count) {
+        VectorStoreService vectorStoreService = new VectorStoreService();
+        return indicators(count).stream()
+                .map(indicator -> vectorStoreService.convertToDocument(indicator, SOURCE))
+                .map(document -> Document.builder()
+                        .id(document.getId())
+                        .text(document.getText())
+                        .metadata(Map.copyOf(document.getMetadata()))
+                        .score(0.8)
+                        .build())
+                .toList();
+    }
+
+    private static MacroeconomicIndicator indicator(int row, Random random) {
+        // Each series spans every fiscal year, like the real file
+        int series = row / YEARS.length;
+        String name = INDICATORS[series % INDICATORS.length] + " - series " + series / INDICATORS.length;
+        String units = UNITS[series % UNITS.length];
+        String year = YEARS[row % YEARS.length];
+        String value = row % 20 == 19 ? "-" : String.format(Locale.ROOT, "%.1f", random.nextDouble() * 200 - 50);
+        return new MacroeconomicIndicator(name, units, year, value);
+    }
+
+    private static String quote(String field) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.rag.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the RAG endpoints. Requests are started at a fixed target rate
+ * regardless of how fast earlier ones complete, and each latency is measured from the moment
+ * the request was due, so a stalled server shows up in the tail percentiles instead of
+ * silently lowering the offered load.
+ *
+ * <p>Run the service with {@code --spring.profiles.active=loadtest}, then e.g.
+ * {@code mvn -P loadtest test-compile exec:exec -Dloadtest.args="--rate 200 --duration 60"}.
+ *
+ * <p>Options: {@code --url} (default http://localhost:8080), {@code --rate} requests per second,
+ * {@code --duration} and {@code --warmup} in seconds, {@code --mix} endpoint weights such as
+ * {@code search=40,search-by-year=20,ask=30,ask-external=10}, {@code --seed}, and
+ * {@code --load-data} to call /load-data before starting.
+ */
+public final class LoadTestDriver {
+
+    private static final String[] INDICATORS = {
+        "Revenues", "Tax Revenue", "Grants", "Total Government Expenditures", "Capital Expenditure",
+        "Recurrent Expenditure", "Overall Deficit", "Domestic Borrowing", "Broad Money", "Domestic Credit"
+    };
+
+    private static final String[] YEARS = {
+        "2007/08", "2008/09", "2009/10", "2010/11", "2011/12",
+        "2012/13", "2013/14", "2014/15", "2015/16", "2016/17"
+    };
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> options;
+
+    private final HttpClient httpClient;
+
+    private final String baseUrl;
+
+    private final Random random;
+
+    private final List<String> endpoints = new ArrayList<>();
+
+    private final int[] cumulativeWeights;
+
+    private LoadTestDriver(Map<String, String> options, ExecutorService executor) {
+        this.options = options;
+        this.baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        this.random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+        this.httpClient = HttpClient.newBuilder()
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        String mix = options.getOrDefault("mix", "search=40,search-by-year=20,ask=30,ask-external=10");
+        List<Integer> weights = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            endpoints.add(parts[0].trim());
+            weights.add(Integer.parseInt(parts[1].trim()));
+        }
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            LoadTestDriver driver = new LoadTestDriver(options, executor);
+            if (options.containsKey("load-data")) {
+                driver.loadData();
+            }
+
+            double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+            int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "10"));
+            int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "60"));
+
+            if (warmupSeconds > 0) {
+                System.out.printf(Locale.ROOT, "Warming up for %d s at %.0f req/s%n", warmupSeconds, rate);
+                driver.run(rate, warmupSeconds);
+            }
+            System.out.printf(Locale.ROOT, "Measuring for %d s at %.0f req/s against %s%n", durationSeconds, rate, driver.baseUrl);
+            Map<String, Recorder> results = driver.run(rate, durationSeconds);
+            report(results);
+        }
+    }
+
+    private void loadData() throws Exception {
+        HttpResponse<String> response = httpClient.send(post("/api/rag/load-data", Map.of()), HttpResponse.BodyHandlers.ofString());
+        System.out.println("Load data: HTTP " + response.statusCode() + " " + response.body());
+        String location = response.headers().firstValue("Location").orElse(null);
+        if (response.statusCode() != 202 || location == null) {
+            return;
+        }
+
+        // The load runs as a background job; wait for it so the measurement sees the full index
+        while (true) {
+            HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + location)).timeout(Duration.ofSeconds(10)).GET().build();
+            String status = objectMapper.readTree(httpClient.send(poll, HttpResponse.BodyHandlers.ofString()).body())
+                    .path("status").asText();
+            if (!status.equals("queued") && !status.equals("running")) {
+                System.out.println("Load data: job " + status);
+                return;
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private Map<String, Recorder> run(double rate, int durationSeconds) throws Exception {
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            recorders.put(endpoint, new Recorder());
+        }
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (long i = 0; i * intervalNanos < durationNanos; i++) {
+            long due = start + i * intervalNanos;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            String endpoint = nextEndpoint();
+            Recorder recorder = recorders.get(endpoint);
+            inFlight.add(httpClient.sendAsync(request(endpoint), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> recorder.record(System.nanoTime() - due,
+                            error == null && response.statusCode() / 100 == 2)));
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+                .exceptionally(error -> null)
+                .get();
+        long elapsed = System.nanoTime() - start;
+        recorders.values().forEach(recorder -> recorder.elapsedNanos = elapsed);
+        return recorders;
+    }
+
+    private String nextEndpoint() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return endpoints.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private HttpRequest request(String endpoint) {
+        String indicator = INDICATORS[random.nextInt(INDICATORS.length)];
+        String year = YEARS[random.nextInt(YEARS.length)];
+        String otherYear = YEARS[random.nextInt(YEARS.length)];
+        // Half of the questions are plain lookups (answered without the LLM), half need it
+        String question = random.nextBoolean()
+                ? "What was " + indicator + " in " + year + "?"
+                : "How did " + indicator + " change between " + year + " and " + otherYear + "?";
+
+        return switch (endpoint) {
+            case "search" -> post("/api/rag/search", Map.of("query", indicator + " " + year));
+            case "search-by-year" -> post("/api/rag/search-by-year", Map.of("query", indicator, "year", year));
+            case "ask" -> post("/api/rag/ask", Map.of("prompt", question));
+            case "ask-external" -> post("/api/rag/ask-external", Map.of("prompt", question, "url", baseUrl + "/loadtest/external-llm"));
+            default -> throw new IllegalArgumentException("Unknown endpoint in --mix: " + endpoint);
+        };
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to build request for " + path, e);
+        }
+    }
+
+    private static void report(Map<String, Recorder> results) {
+        System.out.printf(Locale.ROOT, "%n%-16s %9s %7s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Recorder total = new Recorder();
+        for (Map.Entry<String, Recorder> entry : results.entrySet()) {
+            printRow(entry.getKey(), entry.getValue());
+            total.addAll(entry.getValue());
+        }
+        printRow("total", total);
+    }
+
+    private static void printRow(String name, Recorder recorder) {
+        long[] latencies = recorder.sortedLatencies();
+        System.out.printf(Locale.ROOT, "%-16s %9d %7d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                name, latencies.length, recorder.errors,
+                latencies.length / (recorder.elapsedNanos / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(name, hasValue ? args[++i] : "true");
+        }
+        return options;
+    }
+
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private int errors;
+
+        private long elapsedNanos;
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized void addAll(Recorder other) {
+            long[] otherLatencies = other.sortedLatencies();
+            for (long latency : otherLatencies) {
+                record(latency, true);
+            }
+            errors += other.errors;
+            elapsedNanos = Math.max(elapsedNanos, other.elapsedNanos);
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
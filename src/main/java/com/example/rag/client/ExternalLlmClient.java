@@ -0,0 +1,268 @@
+package com.example.rag.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Client for the external LLM gateway on the JDK {@link HttpClient}, which keeps connections
+ * alive and negotiates HTTP/2 where the server supports it. Every attempt has a connect and
+ * request timeout, in-flight requests are capped per host, and when hedging is enabled a
+ * second attempt is started if the first has not answered within the p95 latency observed
+ * for that host.
+ * The first successful attempt wins and the other one is cancelled.
+ */
+@Service
+public class ExternalLlmClient {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ExternalLlmClient.class);
+    
+    private static final int LATENCY_WINDOW = 256;
+    
+    // Marks a request whose primary attempt finished before a hedge was started
+    private static final CompletableFuture<ExternalLlmResponse> NOT_HEDGED = CompletableFuture.completedFuture(null);
+    
+    @Autowired
+    private ExecutorService outboundExecutor;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.external-llm.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+    
+    @Value("${app.external-llm.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+    
+    @Value("${app.external-llm.max-concurrent-per-host:32}")
+    private int maxConcurrentPerHost;
+    
+    @Value("${app.external-llm.http-version:HTTP_2}")
+    private HttpClient.Version httpVersion;
+    
+    @Value("${app.external-llm.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+    
+    @Value("${app.external-llm.hedging.min-samples:20}")
+    private int hedgingMinSamples;
+    
+    @Value("${app.external-llm.hedging.min-delay-ms:50}")
+    private long hedgingMinDelayMs;
+    
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    
+    private final Map<String, LatencyWindow> hostLatencies = new ConcurrentHashMap<>();
+    
+    private HttpClient httpClient;
+    
+    @PostConstruct
+    void initialize() {
+        httpClient = HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(outboundExecutor)
+                .build();
+    }
+    
+    public ExternalLlmResponse generate(URI uri, ExternalLlmRequest request) {
+        try {
+            return generateAsync(uri, request).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExternalLlmException("Interrupted while waiting for external LLM at " + uri, e);
+        }
+    }
+    
+    public CompletableFuture<ExternalLlmResponse> generateAsync(URI uri, ExternalLlmRequest request) {
+        HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(toJson(request)))
+                .build();
+        
+        CompletableFuture<ExternalLlmResponse> primary = attempt(httpRequest, true);
+        long hedgeDelayMs = hedgeDelayMs(uri);
+        if (hedgeDelayMs < 0) {
+            return primary;
+        }
+        
+        CompletableFuture<ExternalLlmResponse> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<ExternalLlmResponse>> hedge = new AtomicReference<>();
+        CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS, outboundExecutor).execute(() -> {
+            CompletableFuture<ExternalLlmResponse> second = new CompletableFuture<>();
+            if (primary.isDone() || !hedge.compareAndSet(null, second)) {
+                return;
+            }
+            logger.debug("External LLM at {} slower than {} ms, sending hedged request", uri, hedgeDelayMs);
+            CompletableFuture<ExternalLlmResponse> attempt = attempt(httpRequest, false);
+            second.whenComplete((response, error) -> attempt.cancel(true));
+            attempt.whenComplete((response, error) -> complete(second, response, error));
+            second.whenComplete((response, error) -> {
+                if (error == null) {
+                    result.complete(response);
+                    primary.cancel(true);
+                } else if (primary.isCompletedExceptionally()) {
+                    result.completeExceptionally(error);
+                }
+            });
+        });
+        
+        // First success wins; the request only fails once every attempt that was started has failed
+        primary.whenComplete((response, error) -> {
+            CompletableFuture<ExternalLlmResponse> second = hedge.compareAndExchange(null, NOT_HEDGED);
+            if (error == null) {
+                result.complete(response);
+                if (second != null) {
+                    second.cancel(true);
+                }
+            } else if (second == null || second.isCompletedExceptionally()) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * The p95 of recent attempt latencies to the host of {@code uri} in milliseconds, or -1
+     * while there are too few samples for that host.
+     */
+    public long p95LatencyMs(URI uri) {
+        LatencyWindow window = hostLatencies.get(hostKey(uri));
+        return window == null ? -1 : window.p95(Math.max(1, hedgingMinSamples));
+    }
+    
+    private long hedgeDelayMs(URI uri) {
+        if (!hedgingEnabled) {
+            return -1;
+        }
+        long p95 = p95LatencyMs(uri);
+        return p95 < 0 ? -1 : Math.max(hedgingMinDelayMs, p95);
+    }
+    
+    private CompletableFuture<ExternalLlmResponse> attempt(HttpRequest httpRequest, boolean waitForPermit) {
+        Semaphore permits = hostPermits.computeIfAbsent(hostKey(httpRequest.uri()),
+                host -> new Semaphore(Math.max(1, maxConcurrentPerHost), true));
+        try {
+            // Hedges never queue for a permit: if the host is saturated another attempt would not help
+            boolean acquired = waitForPermit
+                    ? permits.tryAcquire(requestTimeoutMs, TimeUnit.MILLISECONDS)
+                    : permits.tryAcquire();
+            if (!acquired) {
+                return CompletableFuture.failedFuture(new ExternalLlmException(
+                        "Too many concurrent requests to " + httpRequest.uri().getHost()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new ExternalLlmException("Interrupted while waiting for a connection", e));
+        }
+        
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange = httpClient.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<ExternalLlmResponse> parsed = exchange
+                .whenComplete((response, error) -> permits.release())
+                .thenApply(response -> {
+                    hostLatencies.computeIfAbsent(hostKey(httpRequest.uri()), host -> new LatencyWindow())
+                            .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return parse(httpRequest.uri(), response);
+                });
+        // Cancelling the attempt (e.g. the losing side of a hedge) aborts the HTTP exchange as well
+        parsed.whenComplete((response, error) -> {
+            if (parsed.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return parsed;
+    }
+    
+    private ExternalLlmResponse parse(URI uri, HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new ExternalLlmException("External LLM at " + uri + " returned HTTP " + response.statusCode());
+        }
+        try {
+            return objectMapper.readValue(response.body(), ExternalLlmResponse.class);
+        } catch (Exception e) {
+            throw new ExternalLlmException("External LLM at " + uri + " returned an unreadable response", e);
+        }
+    }
+    
+    private byte[] toJson(ExternalLlmRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new ExternalLlmException("Failed to serialize external LLM request", e);
+        }
+    }
+    
+    private static String hostKey(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+    
+    private static <T> void complete(CompletableFuture<T> future, T value, Throwable error) {
+        if (error == null) {
+            future.complete(value);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+    
+    private RuntimeException unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof ExternalLlmException external) {
+            return external;
+        }
+        if (cause instanceof HttpTimeoutException) {
+            return new ExternalLlmException("External LLM did not answer within " + requestTimeoutMs + " ms", cause);
+        }
+        return new ExternalLlmException("External LLM call failed: " + cause.getMessage(), cause);
+    }
+    
+    /**
+     * The last {@value #LATENCY_WINDOW} attempt latencies to one host, so a slow gateway does
+     * not stretch the hedge delay of a fast one.
+     */
+    private static final class LatencyWindow {
+        
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        
+        private long count;
+        
+        synchronized void record(long latencyMs) {
+            latencies[(int) (count++ % LATENCY_WINDOW)] = latencyMs;
+        }
+        
+        synchronized long p95(int minSamples) {
+            int samples = (int) Math.min(count, LATENCY_WINDOW);
+            if (samples < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(samples * 0.95) - 1];
+        }
+    }
+}
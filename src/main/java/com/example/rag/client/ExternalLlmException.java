@@ -0,0 +1,12 @@
+package com.example.rag.client;
+
+public class ExternalLlmException extends RuntimeException {
+    
+    public ExternalLlmException(String message) {
+        super(message);
+    }
+    
+    public ExternalLlmException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
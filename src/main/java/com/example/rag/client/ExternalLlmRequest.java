@@ -0,0 +1,9 @@
+package com.example.rag.client;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record ExternalLlmRequest(
+        String prompt,
+        String context,
+        @JsonProperty("system_message") String systemMessage) {
+}
@@ -0,0 +1,7 @@
+package com.example.rag.client;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ExternalLlmResponse(String response) {
+}
@@ -1,6 +1,7 @@
 package com.example.rag.component;
 
-import com.example.rag.service.VectorStoreService;
+import com.example.rag.model.IngestionJobStatus;
+import com.example.rag.service.IngestionJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +15,7 @@ public class DataLoader implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(DataLoader.class);
     
     @Autowired
-    private VectorStoreService vectorStoreService;
+    private IngestionJobService ingestionJobService;
     
     @Value("${app.load-data-on-startup:false}")
     private boolean loadDataOnStartup;
@@ -22,13 +23,9 @@ public class DataLoader implements CommandLineRunner {
     @Override
     public void run(String... args) throws Exception {
         if (loadDataOnStartup) {
-            logger.info("Loading CSV data into vector store on startup");
-            try {
-                vectorStoreService.loadAndStoreDocuments("macroeconimic-indicator-2007-2017-by-monetary-sector.csv");
-                logger.info("Data loaded successfully on startup");
-            } catch (Exception e) {
-                logger.error("Failed to load data on startup: {}", e.getMessage(), e);
-            }
+            // Runs in the background so startup does not wait for embedding
+            IngestionJobStatus job = ingestionJobService.submit(null);
+            logger.info("Loading CSV data into vector store as job {}", job.jobId());
         } else {
             logger.info("Data loading on startup is disabled. Use POST /api/rag/load-data to load data manually.");
         }
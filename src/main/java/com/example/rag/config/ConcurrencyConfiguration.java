@@ -0,0 +1,58 @@
+package com.example.rag.config;
+
+import com.example.rag.embedding.ConcurrencyLimitedEmbeddingModel;
+import com.example.rag.service.DownstreamLimiter;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ConcurrencyConfiguration {
+    
+    /**
+     * Executor for blocking outbound work started off the request thread (e.g. retrieval for
+     * streamed answers). Uses one virtual thread per task unless virtual threads are disabled.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService outboundExecutor(Environment environment) {
+        if (environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("rag-outbound-", 0).factory());
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name("rag-outbound-", 0).daemon().factory());
+    }
+    
+    /**
+     * Limits concurrent calls to the embedding provider. Ordered so it wraps the provider model
+     * (with only the timing decorator in between) before any other embedding decorator does.
+     */
+    @Bean
+    public static OrderedBeanPostProcessor embeddingConcurrencyPostProcessor(ObjectProvider<DownstreamLimiter> downstreamLimiter) {
+        return new OrderedBeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmbeddingModel embeddingModel) || bean instanceof ConcurrencyLimitedEmbeddingModel) {
+                    return bean;
+                }
+                return new ConcurrencyLimitedEmbeddingModel(embeddingModel, downstreamLimiter.getObject());
+            }
+        };
+    }
+    
+    /**
+     * Declared as the bean type so Spring sees the order before instantiating the processor.
+     */
+    abstract static class OrderedBeanPostProcessor implements BeanPostProcessor, Ordered {
+        
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rag.config;
+
+import com.example.rag.embedding.CachingEmbeddingModel;
+import com.example.rag.embedding.MicroBatchingEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@ConditionalOnProperty(name = "app.embedding-batching.enabled", havingValue = "true", matchIfMissing = true)
+public class EmbeddingBatchingConfiguration {
+    
+    /**
+     * Merges concurrent single-query embedding calls. Ordered to run after the concurrency
+     * limiter and before the cache, so only cache misses are batched and a whole batch takes
+     * a single embedding permit.
+     */
+    @Bean
+    public static MicroBatchingPostProcessor embeddingBatchingPostProcessor(Environment environment) {
+        return new MicroBatchingPostProcessor(environment);
+    }
+    
+    static class MicroBatchingPostProcessor implements BeanPostProcessor, Ordered {
+        
+        private final Environment environment;
+        
+        MicroBatchingPostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+        
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof EmbeddingModel embeddingModel)
+                    || bean instanceof MicroBatchingEmbeddingModel
+                    || bean instanceof CachingEmbeddingModel) {
+                return bean;
+            }
+            return new MicroBatchingEmbeddingModel(
+                    embeddingModel,
+                    environment.getProperty("app.embedding-batching.window-ms", Long.class, 5L),
+                    environment.getProperty("app.embedding-batching.max-batch-size", Integer.class, 64));
+        }
+        
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 2;
+        }
+    }
+}
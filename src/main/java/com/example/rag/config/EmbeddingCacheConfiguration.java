@@ -0,0 +1,40 @@
+package com.example.rag.config;
+
+import com.example.rag.embedding.CachingEmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+@Configuration
+@ConditionalOnProperty(name = "app.embedding-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class EmbeddingCacheConfiguration {
+    
+    /**
+     * Wraps whichever {@link EmbeddingModel} is configured, so the vector store and every
+     * other consumer share the same cache without knowing about it.
+     */
+    @Bean
+    public static BeanPostProcessor embeddingCachePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof EmbeddingModel embeddingModel) || bean instanceof CachingEmbeddingModel) {
+                    return bean;
+                }
+                String diskDirectory = environment.getProperty("app.embedding-cache.disk-directory", "");
+                return new CachingEmbeddingModel(
+                        embeddingModel,
+                        environment.getProperty("spring.ai.openai.embedding.options.model", "text-embedding-ada-002"),
+                        environment.getProperty("app.embedding-cache.max-memory-entries", Integer.class, 10000),
+                        StringUtils.hasText(diskDirectory) ? Path.of(diskDirectory) : null,
+                        environment.getProperty("app.embedding-cache.max-disk-entries", Long.class, 1_000_000L));
+            }
+        };
+    }
+}
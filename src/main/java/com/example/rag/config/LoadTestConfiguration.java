@@ -0,0 +1,44 @@
+package com.example.rag.config;
+
+import com.example.rag.loadtest.FakeChatModel;
+import com.example.rag.loadtest.FakeEmbeddingModel;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Local model stand-ins for the {@code loadtest} profile, which also switches off the OpenAI
+ * models (see application-loadtest.properties) so the service runs with no network access.
+ */
+@Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+    
+    @Value("${app.loadtest.embedding.dimensions:384}")
+    private int embeddingDimensions;
+    
+    @Value("${app.loadtest.embedding.latency-ms:20}")
+    private long embeddingLatencyMillis;
+    
+    @Value("${app.loadtest.embedding.per-text-latency-us:200}")
+    private long embeddingPerTextLatencyMicros;
+    
+    @Value("${app.loadtest.chat.latency-ms:300}")
+    private long chatLatencyMillis;
+    
+    @Value("${app.loadtest.chat.token-delay-ms:5}")
+    private long chatTokenDelayMillis;
+    
+    @Bean
+    public EmbeddingModel embeddingModel() {
+        return new FakeEmbeddingModel(embeddingDimensions, embeddingLatencyMillis, embeddingPerTextLatencyMicros);
+    }
+    
+    @Bean
+    public ChatModel chatModel() {
+        return new FakeChatModel(chatLatencyMillis, chatTokenDelayMillis);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.rag.config;
+
+import com.example.rag.embedding.CachingEmbeddingModel;
+import com.example.rag.embedding.TimedEmbeddingModel;
+import com.example.rag.metrics.EndpointTaggingInterceptor;
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
+import com.example.rag.service.QueryResultCacheService;
+import com.example.rag.service.RequestCoalescer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+@Configuration
+public class MetricsConfiguration implements WebMvcConfigurer {
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointTaggingInterceptor());
+    }
+    
+    /**
+     * Times the embedding provider. Ordered ahead of every other embedding decorator so it
+     * wraps the provider model itself.
+     */
+    @Bean
+    public static TimingPostProcessor embeddingTimingPostProcessor(ObjectProvider<RagMetrics> ragMetrics) {
+        return new TimingPostProcessor(ragMetrics);
+    }
+    
+    /**
+     * Replaces Boot's default JSON converter with one that records how long response bodies
+     * take to serialize.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper, RagMetrics ragMetrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+                    throws IOException, HttpMessageNotWritableException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    ragMetrics.record(Stage.RESPONSE_SERIALIZATION, System.nanoTime() - start);
+                }
+            }
+        };
+    }
+    
+    /**
+     * Exposes the embedding cache, result cache and request coalescing counters as meters.
+     */
+    @Bean
+    public MeterBinder cacheMetrics(EmbeddingModel embeddingModel, QueryResultCacheService queryResultCacheService,
+                                    RequestCoalescer requestCoalescer) {
+        return registry -> {
+            if (embeddingModel instanceof CachingEmbeddingModel cache) {
+                FunctionCounter.builder("rag.cache.requests", cache, CachingEmbeddingModel::getMemoryHits)
+                        .tags("cache", "embedding", "outcome", "memory_hit").register(registry);
+                FunctionCounter.builder("rag.cache.requests", cache, CachingEmbeddingModel::getDiskHits)
+                        .tags("cache", "embedding", "outcome", "disk_hit").register(registry);
+                FunctionCounter.builder("rag.cache.requests", cache, CachingEmbeddingModel::getMisses)
+                        .tags("cache", "embedding", "outcome", "miss").register(registry);
+            }
+            FunctionCounter.builder("rag.cache.requests", queryResultCacheService, QueryResultCacheService::getExactHits)
+                    .tags("cache", "result", "outcome", "exact_hit").register(registry);
+            FunctionCounter.builder("rag.cache.requests", queryResultCacheService, QueryResultCacheService::getSemanticHits)
+                    .tags("cache", "result", "outcome", "semantic_hit").register(registry);
+            FunctionCounter.builder("rag.cache.requests", queryResultCacheService, QueryResultCacheService::getMisses)
+                    .tags("cache", "result", "outcome", "miss").register(registry);
+            FunctionCounter.builder("rag.requests.coalesced", requestCoalescer, RequestCoalescer::getCoalescedRequests)
+                    .register(registry);
+        };
+    }
+    
+    static class TimingPostProcessor implements BeanPostProcessor, Ordered {
+        
+        private final ObjectProvider<RagMetrics> ragMetrics;
+        
+        TimingPostProcessor(ObjectProvider<RagMetrics> ragMetrics) {
+            this.ragMetrics = ragMetrics;
+        }
+        
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof EmbeddingModel embeddingModel) || bean instanceof TimedEmbeddingModel) {
+                return bean;
+            }
+            return new TimedEmbeddingModel(embeddingModel, ragMetrics.getObject());
+        }
+        
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
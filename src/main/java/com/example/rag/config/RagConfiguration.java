@@ -1,17 +1,22 @@
 package com.example.rag.config;
 
+import com.example.rag.service.SearchFilterCompiler;
+import com.example.rag.vectorstore.FlatVectorStore;
+import com.example.rag.vectorstore.HnswVectorStore;
+import com.example.rag.vectorstore.VersionedRedisVectorStore;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.ai.vectorstore.redis.RedisVectorStore;
 import org.springframework.ai.vectorstore.redis.RedisVectorStore.MetadataField;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 import redis.clients.jedis.JedisPooled;
 
+import java.nio.file.Path;
+import java.util.List;
+
 @Configuration
 public class RagConfiguration {
     
@@ -21,6 +26,36 @@ public class RagConfiguration {
     @Value("${spring.data.redis.port:6379}")
     private int redisPort;
     
+    @Value("${app.vector-store.type:redis}")
+    private String vectorStoreType;
+    
+    @Value("${app.vector-store.hnsw.m:16}")
+    private int hnswM;
+    
+    @Value("${app.vector-store.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+    
+    @Value("${app.vector-store.hnsw.ef-search:64}")
+    private int hnswEfSearch;
+    
+    @Value("${app.vector-store.flat.directory:data/flat-index}")
+    private String flatDirectory;
+    
+    @Value("${app.vector-store.flat.search-parallelism:0}")
+    private int flatSearchParallelism;
+    
+    @Value("${app.vector-store.flat.quantization:none}")
+    private String flatQuantization;
+    
+    @Value("${app.vector-store.flat.oversampling:4}")
+    private int flatOversampling;
+    
+    @Value("${app.vector-store.redis.alias:rag-documents}")
+    private String redisAlias;
+    
+    @Value("${app.vector-store.redis.state-key:rag:index}")
+    private String redisStateKey;
+    
     @Bean
     public JedisPooled jedisPooled() {
         return new JedisPooled(redisHost, redisPort);
@@ -28,27 +63,45 @@ public class RagConfiguration {
     
     @Bean
     public VectorStore vectorStore(JedisPooled jedisPooled, EmbeddingModel embeddingModel) {
-        return RedisVectorStore.builder(jedisPooled, embeddingModel)
-                .indexName("rag-documents-index")
-                .prefix("rag:embedding:")
-                .metadataFields(
-                    MetadataField.text("indicator"),
-                    MetadataField.text("units"), 
-                    MetadataField.text("year"),
-                    MetadataField.text("value"),
-                    MetadataField.text("source")
-                )
-                .initializeSchema(true)
-                .build();
+        return switch (vectorStoreType) {
+            case "redis" -> redisVectorStore(jedisPooled, embeddingModel);
+            case "hnsw" -> new HnswVectorStore(embeddingModel, hnswM, hnswEfConstruction, hnswEfSearch);
+            case "flat" -> new FlatVectorStore(embeddingModel, Path.of(flatDirectory),
+                    flatSearchParallelism > 0 ? flatSearchParallelism : Runtime.getRuntime().availableProcessors(),
+                    isInt8Quantization(), flatOversampling);
+            default -> throw new IllegalArgumentException("Unknown app.vector-store.type: " + vectorStoreType);
+        };
     }
     
-    @Bean
-    public ChatClient chatClient(ChatModel chatModel) {
-        return ChatClient.create(chatModel);
+    private boolean isInt8Quantization() {
+        return switch (flatQuantization) {
+            case "none" -> false;
+            case "int8" -> true;
+            default -> throw new IllegalArgumentException("Unknown app.vector-store.flat.quantization: " + flatQuantization);
+        };
+    }
+    
+    /**
+     * Indexed metadata of the Redis store. Names are TAG fields, matched exactly and cheaply,
+     * and the fiscal-year start and value are NUMERIC fields for range filters; the original
+     * {@code year} and {@code value} strings stay in the stored JSON without being indexed.
+     */
+    public static final List<MetadataField> REDIS_METADATA_FIELDS = List.of(
+            MetadataField.tag("indicator"),
+            MetadataField.tag("units"),
+            MetadataField.tag("source"),
+            MetadataField.tag("level"),
+            MetadataField.numeric(SearchFilterCompiler.YEAR_START),
+            MetadataField.numeric(SearchFilterCompiler.NUMERIC_VALUE));
+    
+    private VectorStore redisVectorStore(JedisPooled jedisPooled, EmbeddingModel embeddingModel) {
+        // Loads fill a new index version and searches follow the alias, so data can be refreshed without downtime
+        return new VersionedRedisVectorStore(jedisPooled, embeddingModel, "rag-documents-index", "rag:embedding:",
+                redisAlias, redisStateKey, REDIS_METADATA_FIELDS);
     }
     
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public ChatClient chatClient(ChatModel chatModel) {
+        return ChatClient.create(chatModel);
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.rag.controller;
+
+/**
+ * Body of the {@code /ask} endpoints; {@code url} is only read by {@code /ask-external}.
+ */
+public record AskRequest(String prompt, String url) {
+}
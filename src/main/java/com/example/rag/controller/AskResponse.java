@@ -0,0 +1,19 @@
+package com.example.rag.controller;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AskResponse(
+        String status,
+        String prompt,
+        String externalUrl,
+        String response) {
+
+    public static AskResponse success(String prompt, String response) {
+        return new AskResponse("success", prompt, null, response);
+    }
+
+    public static AskResponse success(String prompt, String externalUrl, String response) {
+        return new AskResponse("success", prompt, externalUrl, response);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.rag.controller;
+
+import java.util.List;
+
+public record BatchAskRequest(List<String> prompts) {
+}
@@ -0,0 +1,11 @@
+package com.example.rag.controller;
+
+import java.util.List;
+
+public record BatchSearchRequest(
+        List<String> queries,
+        Integer topK,
+        Double similarityThreshold,
+        String mode,
+        List<String> fields) {
+}
@@ -0,0 +1,8 @@
+package com.example.rag.controller;
+
+public record ErrorResponse(String status, String message) {
+
+    public static ErrorResponse of(String message) {
+        return new ErrorResponse("error", message);
+    }
+}
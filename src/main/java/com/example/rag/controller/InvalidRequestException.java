@@ -0,0 +1,11 @@
+package com.example.rag.controller;
+
+/**
+ * Thrown when a request body fails validation; answered with 400 and the message.
+ */
+public class InvalidRequestException extends RuntimeException {
+    
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,18 +1,33 @@
 package com.example.rag.controller;
 
+import com.example.rag.embedding.CachingEmbeddingModel;
+import com.example.rag.embedding.MicroBatchingEmbeddingModel;
+import com.example.rag.model.IngestionJobStatus;
+import com.example.rag.model.ResultFields;
+import com.example.rag.model.SearchFilter;
+import com.example.rag.service.BatchQueryService;
+import com.example.rag.service.DownstreamBusyException;
+import com.example.rag.service.IngestionJobService;
+import com.example.rag.service.QueryResultCacheService;
 import com.example.rag.service.RagService;
+import com.example.rag.service.RequestCoalescer;
 import com.example.rag.service.VectorStoreService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/rag")
@@ -21,201 +36,319 @@ public class RagController {
     
     private static final Logger logger = LoggerFactory.getLogger(RagController.class);
     
+    // A bare file name: it is resolved against the working directory, then the classpath
+    private static final Pattern CSV_FILE_NAME = Pattern.compile("[\\w.-]+\\.csv(\\.gz)?");
+    
     @Autowired
     private VectorStoreService vectorStoreService;
     
     @Autowired
     private RagService ragService;
     
+    @Autowired
+    private EmbeddingModel embeddingModel;
+    
+    @Autowired
+    private QueryResultCacheService queryResultCacheService;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Autowired
+    private BatchQueryService batchQueryService;
+    
+    @Autowired
+    private IngestionJobService ingestionJobService;
+    
+    @Value("${app.batch.max-queries:100}")
+    private int maxBatchQueries;
+    
+    @Value("${app.search.max-top-k:50}")
+    private int maxTopK;
+    
+    /**
+     * Queues a background load of the given CSV file (the configured default when absent)
+     * and answers 202 with the job's status; poll the Location header for progress.
+     */
     @PostMapping("/load-data")
-    public ResponseEntity<Map<String, String>> loadData() {
-        try {
-            logger.info("Loading CSV data into vector store");
-            vectorStoreService.loadAndStoreDocuments("macroeconimic-indicator-2007-2017-by-monetary-sector.csv");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "message", "Data successfully loaded into Redis vector store"
-            ));
-        } catch (Exception e) {
-            logger.error("Error loading data: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                "status", "error",
-                "message", "Failed to load data: " + e.getMessage()
-            ));
+    public ResponseEntity<?> loadData(@RequestParam(required = false) String file) {
+        if (file != null && !CSV_FILE_NAME.matcher(file).matches()) {
+            throw new InvalidRequestException("File must be a .csv or .csv.gz file name without a path");
         }
+        
+        IngestionJobStatus job = ingestionJobService.submit(file);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/rag/load-data/jobs/" + job.jobId()))
+                .body(job);
+    }
+    
+    @GetMapping("/load-data/jobs")
+    public ResponseEntity<List<IngestionJobStatus>> loadDataJobs() {
+        return ResponseEntity.ok(ingestionJobService.list());
+    }
+    
+    @GetMapping("/load-data/jobs/{jobId}")
+    public ResponseEntity<?> loadDataJob(@PathVariable String jobId) {
+        return ingestionJobService.find(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> unknownJob(jobId));
+    }
+    
+    @DeleteMapping("/load-data/jobs/{jobId}")
+    public ResponseEntity<?> cancelLoadDataJob(@PathVariable String jobId) {
+        return ingestionJobService.cancel(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> unknownJob(jobId));
+    }
+    
+    private static ResponseEntity<ErrorResponse> unknownJob(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ErrorResponse.of("Unknown ingestion job: " + jobId));
     }
     
     @PostMapping("/search")
-    public ResponseEntity<Map<String, Object>> search(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> search(@RequestBody SearchRequest request) {
+        String query = requireText(request.query(), "Query cannot be empty");
+        int topK = topK(request.topK());
+        double threshold = similarityThreshold(request.similarityThreshold());
+        String mode = mode(request.mode());
+        ResultFields fields = resultFields(request.fields());
+        SearchFilter filter = filter(request.filter(), mode);
+        
         try {
-            String query = request.get("query");
-            if (query == null || query.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Query cannot be empty"
-                ));
-            }
-            
             logger.info("Searching for: {}", query);
             
-            // Get top K from request or default to 5
-            String topKStr = request.get("topK");
-            int topK = topKStr != null ? Integer.parseInt(topKStr) : 5;
-            
-            // Get similarity threshold from request or default to 0.75
-            String thresholdStr = request.get("similarityThreshold");
-            double threshold = thresholdStr != null ? Double.parseDouble(thresholdStr) : 0.75;
-            
-            List<Document> results = vectorStoreService.searchSimilarDocuments(query, topK, threshold);
-            
-            // Format response
-            List<Map<String, Object>> formattedResults = results.stream()
-                    .map(doc -> {
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("content", doc.getText());
-                        result.put("metadata", doc.getMetadata());
-                        return result;
-                    })
-                    .collect(Collectors.toList());
+            List<Document> results;
+            if (filter != null) {
+                results = vectorStoreService.searchWithMetadataFilter(query, topK, threshold, filter);
+            } else if (mode != null) {
+                results = vectorStoreService.searchSimilarDocuments(query, topK, threshold, mode);
+            } else {
+                results = vectorStoreService.searchSimilarDocuments(query, topK, threshold);
+            }
             
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "query", query,
-                "totalResults", results.size(),
-                "results", formattedResults
-            ));
+            return ResponseEntity.ok(SearchResponse.success(query, null, results, fields));
             
+        } catch (DownstreamBusyException e) {
+            // Answered with 503 and Retry-After by RagExceptionHandler
+            throw e;
         } catch (Exception e) {
             logger.error("Error performing search: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                "status", "error",
-                "message", "Search failed: " + e.getMessage()
-            ));
+            return ResponseEntity.internalServerError().body(ErrorResponse.of("Search failed: " + e.getMessage()));
         }
     }
     
+    @PostMapping("/search/batch")
+    public ResponseEntity<?> searchBatch(@RequestBody BatchSearchRequest request) {
+        List<String> queries = batch(request.queries(), "Queries must be a non-empty list of non-empty strings", "queries");
+        int topK = topK(request.topK());
+        double threshold = similarityThreshold(request.similarityThreshold());
+        String mode = mode(request.mode());
+        ResultFields fields = resultFields(request.fields());
+        
+        logger.info("Batch searching {} queries", queries.size());
+        
+        // One JSON line per query as it completes; a client disconnect cancels the rest
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(batchQueryService.searchBatch(queries, topK, threshold, mode, fields));
+    }
+    
     @PostMapping("/search-by-year")
-    public ResponseEntity<Map<String, Object>> searchByYear(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> searchByYear(@RequestBody SearchRequest request) {
+        String query = requireText(request.query(), "Query cannot be empty");
+        String year = fiscalYear(requireText(request.year(), "Year cannot be empty"));
+        int topK = topK(request.topK());
+        ResultFields fields = resultFields(request.fields());
+        
         try {
-            String query = request.get("query");
-            String year = request.get("year");
-            
-            if (query == null || query.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Query cannot be empty"
-                ));
-            }
-            
-            if (year == null || year.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Year cannot be empty"
-                ));
-            }
-            
             logger.info("Searching for: {} in year: {}", query, year);
             
-            String topKStr = request.get("topK");
-            int topK = topKStr != null ? Integer.parseInt(topKStr) : 5;
-            
             List<Document> results = vectorStoreService.searchWithMetadataFilter(query, topK, year);
             
-            // Format response
-            List<Map<String, Object>> formattedResults = results.stream()
-                    .map(doc -> {
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("content", doc.getText());
-                        result.put("metadata", doc.getMetadata());
-                        return result;
-                    })
-                    .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "query", query,
-                "year", year,
-                "totalResults", results.size(),
-                "results", formattedResults
-            ));
+            return ResponseEntity.ok(SearchResponse.success(query, year, results, fields));
             
+        } catch (DownstreamBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error performing year-filtered search: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                "status", "error",
-                "message", "Search failed: " + e.getMessage()
-            ));
+            return ResponseEntity.internalServerError().body(ErrorResponse.of("Search failed: " + e.getMessage()));
         }
     }
     
     @PostMapping("/ask")
-    public ResponseEntity<Map<String, Object>> ask(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> ask(@RequestBody AskRequest request) {
+        String prompt = requireText(request.prompt(), "Prompt cannot be empty");
+        
         try {
-            String prompt = request.get("prompt");
-            if (prompt == null || prompt.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Prompt cannot be empty"
-                ));
-            }
-            
             logger.info("Processing RAG request: {}", prompt);
             
             String response = ragService.generateResponse(prompt);
             
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "prompt", prompt,
-                "response", response
-            ));
+            return ResponseEntity.ok(AskResponse.success(prompt, response));
             
+        } catch (DownstreamBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing RAG request: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                "status", "error",
-                "message", "Failed to process request: " + e.getMessage()
-            ));
+            return ResponseEntity.internalServerError().body(ErrorResponse.of("Failed to process request: " + e.getMessage()));
         }
     }
     
+    @PostMapping("/ask/stream")
+    public ResponseEntity<?> askStream(@RequestBody AskRequest request) {
+        String prompt = requireText(request.prompt(), "Prompt cannot be empty");
+        
+        logger.info("Processing streaming RAG request: {}", prompt);
+        
+        // Sources first, then tokens as they arrive; errors are sent as an "error" event
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(ragService.streamResponse(prompt));
+    }
+    
+    @PostMapping("/ask/batch")
+    public ResponseEntity<?> askBatch(@RequestBody BatchAskRequest request) {
+        List<String> prompts = batch(request.prompts(), "Prompts must be a non-empty list of non-empty strings", "prompts");
+        
+        logger.info("Processing batch of {} RAG requests", prompts.size());
+        
+        // One JSON line per query as it completes; a client disconnect cancels the rest
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(batchQueryService.askBatch(prompts));
+    }
+    
     @PostMapping("/ask-external")
-    public ResponseEntity<Map<String, Object>> askExternal(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> askExternal(@RequestBody AskRequest request) {
+        String prompt = requireText(request.prompt(), "Prompt cannot be empty");
+        String externalUrl = requireText(request.url(), "External LLM URL cannot be empty");
+        
         try {
-            String prompt = request.get("prompt");
-            String externalUrl = request.get("url");
-            
-            if (prompt == null || prompt.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Prompt cannot be empty"
-                ));
-            }
-            
-            if (externalUrl == null || externalUrl.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "External LLM URL cannot be empty"
-                ));
-            }
-            
             logger.info("Processing external LLM request: {} to URL: {}", prompt, externalUrl);
             
             String response = ragService.generateExternalResponse(prompt, externalUrl);
             
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "prompt", prompt,
-                "externalUrl", externalUrl,
-                "response", response
-            ));
+            return ResponseEntity.ok(AskResponse.success(prompt, externalUrl, response));
             
+        } catch (DownstreamBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error processing external LLM request: {}", e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(Map.of(
-                "status", "error",
-                "message", "Failed to process external request: " + e.getMessage()
+            return ResponseEntity.internalServerError().body(ErrorResponse.of("Failed to process external request: " + e.getMessage()));
+        }
+    }
+    
+    private static String requireText(String value, String message) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new InvalidRequestException(message);
+        }
+        return value;
+    }
+    
+    private int topK(Integer topK) {
+        if (topK == null) {
+            return 5;
+        }
+        if (topK < 1) {
+            throw new InvalidRequestException("topK must be at least 1");
+        }
+        if (topK > maxTopK) {
+            throw new InvalidRequestException("topK cannot be more than " + maxTopK);
+        }
+        return topK;
+    }
+    
+    private static double similarityThreshold(Double threshold) {
+        if (threshold == null) {
+            return 0.75;
+        }
+        if (threshold < 0 || threshold > 1) {
+            throw new InvalidRequestException("similarityThreshold must be between 0 and 1");
+        }
+        return threshold;
+    }
+    
+    // Retrieval mode from the request or null for the configured default (vector, hybrid or hierarchical)
+    private static String mode(String mode) {
+        if (mode != null && !mode.equals("vector") && !mode.equals("hybrid") && !mode.equals("hierarchical")) {
+            throw new InvalidRequestException("Mode must be 'vector', 'hybrid' or 'hierarchical'");
+        }
+        return mode;
+    }
+    
+    private static ResultFields resultFields(List<String> fields) {
+        try {
+            return ResultFields.of(fields);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+    
+    // Filters apply to the vector ranking only, so they cannot be combined with the other modes
+    private static SearchFilter filter(SearchFilter filter, String mode) {
+        if (filter == null) {
+            return null;
+        }
+        if (mode != null && !mode.equals("vector")) {
+            throw new InvalidRequestException("A filter can only be used with the 'vector' mode");
+        }
+        try {
+            return filter.validated();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        }
+    }
+    
+    private static String fiscalYear(String year) {
+        if (SearchFilter.fiscalYearStart(year) < 0) {
+            throw new InvalidRequestException("Year must be a fiscal year such as 2007/08");
+        }
+        return year;
+    }
+    
+    private List<String> batch(List<String> items, String message, String noun) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidRequestException(message);
+        }
+        for (String item : items) {
+            requireText(item, message);
+        }
+        if (items.size() > maxBatchQueries) {
+            throw new InvalidRequestException("A batch cannot contain more than " + maxBatchQueries + " " + noun);
+        }
+        return items;
+    }
+    
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (embeddingModel instanceof CachingEmbeddingModel cache) {
+            stats.put("embedding", Map.of(
+                "memoryHits", cache.getMemoryHits(),
+                "diskHits", cache.getDiskHits(),
+                "misses", cache.getMisses(),
+                "memoryEntries", cache.getMemoryEntries(),
+                "diskEntries", cache.getDiskEntries()
+            ));
+        }
+        EmbeddingModel model = embeddingModel instanceof CachingEmbeddingModel cache ? cache.getDelegate() : embeddingModel;
+        if (model instanceof MicroBatchingEmbeddingModel batching) {
+            stats.put("embeddingBatching", Map.of(
+                "batches", batching.getBatches(),
+                "batchedTexts", batching.getBatchedTexts()
             ));
         }
+        stats.put("results", Map.of(
+            "exactHits", queryResultCacheService.getExactHits(),
+            "semanticHits", queryResultCacheService.getSemanticHits(),
+            "misses", queryResultCacheService.getMisses(),
+            "entries", queryResultCacheService.getSize()
+        ));
+        stats.put("coalescing", Map.of(
+            "coalescedRequests", requestCoalescer.getCoalescedRequests(),
+            "inFlight", requestCoalescer.getInFlight()
+        ));
+        return ResponseEntity.ok(stats);
     }
     
     @GetMapping("/health")
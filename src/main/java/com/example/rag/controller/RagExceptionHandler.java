@@ -0,0 +1,41 @@
+package com.example.rag.controller;
+
+import com.example.rag.service.DownstreamBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns invalid requests into 400 responses with the usual status/message body, so they
+ * never reach the endpoints' catch-all 500 handling, and saturated downstreams into 503
+ * responses with a {@code Retry-After} header.
+ */
+@RestControllerAdvice(assignableTypes = RagController.class)
+public class RagExceptionHandler {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RagExceptionHandler.class);
+    
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidRequest(InvalidRequestException e) {
+        return ResponseEntity.badRequest().body(ErrorResponse.of(e.getMessage()));
+    }
+    
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> unreadableRequest(HttpMessageNotReadableException e) {
+        logger.debug("Rejecting unreadable request body: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(ErrorResponse.of("Request body is missing or malformed"));
+    }
+    
+    @ExceptionHandler(DownstreamBusyException.class)
+    public ResponseEntity<ErrorResponse> downstreamBusy(DownstreamBusyException e) {
+        logger.warn("Rejecting request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.retryAfterSeconds()))
+                .body(ErrorResponse.of(e.getMessage()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.rag.controller;
+
+import com.example.rag.model.SearchFilter;
+
+import java.util.List;
+
+/**
+ * Body of {@code /search} and {@code /search-by-year}. Numbers may be sent as JSON numbers
+ * or strings; {@code fields} selects which parts of each result are returned and
+ * {@code filter} restricts {@code /search} to rows with matching metadata.
+ */
+public record SearchRequest(
+        String query,
+        String year,
+        Integer topK,
+        Double similarityThreshold,
+        String mode,
+        List<String> fields,
+        SearchFilter filter) {
+}
@@ -0,0 +1,24 @@
+package com.example.rag.controller;
+
+import com.example.rag.model.ResultFields;
+import com.example.rag.model.SearchResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SearchResponse(
+        String status,
+        String query,
+        String year,
+        int totalResults,
+        List<SearchResult> results) {
+
+    public static SearchResponse success(String query, String year, List<Document> documents, ResultFields fields) {
+        List<SearchResult> results = documents.stream()
+                .map(document -> SearchResult.of(document, fields))
+                .toList();
+        return new SearchResponse("success", query, year, results.size(), results);
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.rag.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * {@link EmbeddingModel} decorator that reuses embeddings for texts it has already seen.
+ * Entries are keyed by a SHA-256 of the model name, requested dimensions and text, and live
+ * in a bounded in-memory LRU tier backed by an optional on-disk tier that survives restarts.
+ * Only the texts missing from both tiers are sent to the delegate, in a single request.
+ * When the disk tier grows past its limit, its oldest tenth is deleted.
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+    
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private final EmbeddingModel delegate;
+    
+    private final String defaultModelName;
+    
+    private final Map<String, float[]> memoryCache;
+    
+    private final Path diskDirectory;
+    
+    private final long maxDiskEntries;
+    
+    private final AtomicLong diskEntries = new AtomicLong();
+    
+    private final AtomicLong memoryHits = new AtomicLong();
+    
+    private final AtomicLong diskHits = new AtomicLong();
+    
+    private final AtomicLong misses = new AtomicLong();
+    
+    public CachingEmbeddingModel(EmbeddingModel delegate, String defaultModelName, int maxMemoryEntries,
+                                 Path diskDirectory, long maxDiskEntries) {
+        this.delegate = delegate;
+        this.defaultModelName = defaultModelName;
+        this.memoryCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        this.diskDirectory = diskDirectory;
+        this.maxDiskEntries = maxDiskEntries;
+        
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+                try (Stream<Path> files = Files.list(diskDirectory)) {
+                    diskEntries.set(files.filter(CachingEmbeddingModel::isEntry).count());
+                }
+                logger.info("Embedding disk cache at {} holds {} entries", diskDirectory, diskEntries.get());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to open embedding disk cache at " + diskDirectory, e);
+            }
+        }
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        String modelName = modelName(request.getOptions());
+        Integer dimensions = request.getOptions() != null ? request.getOptions().getDimensions() : null;
+        
+        float[][] vectors = new float[texts.size()][];
+        // Distinct missing keys, in order, with every position that needs them
+        Map<String, List<Integer>> missingPositions = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+        
+        for (int i = 0; i < texts.size(); i++) {
+            String key = cacheKey(modelName, dimensions, texts.get(i));
+            float[] cached = lookup(key);
+            if (cached != null) {
+                vectors[i] = cached;
+                continue;
+            }
+            List<Integer> positions = missingPositions.get(key);
+            if (positions == null) {
+                misses.incrementAndGet();
+                positions = new ArrayList<>();
+                missingPositions.put(key, positions);
+                missingTexts.add(texts.get(i));
+            }
+            positions.add(i);
+        }
+        
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata();
+        if (!missingTexts.isEmpty()) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(missingTexts, request.getOptions()));
+            metadata = response.getMetadata();
+            
+            int index = 0;
+            for (Map.Entry<String, List<Integer>> missing : missingPositions.entrySet()) {
+                float[] vector = response.getResults().get(index++).getOutput();
+                store(missing.getKey(), vector);
+                for (int position : missing.getValue()) {
+                    vectors[position] = vector;
+                }
+            }
+        }
+        
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings, metadata);
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+    
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+    
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public int getMemoryEntries() {
+        synchronized (memoryCache) {
+            return memoryCache.size();
+        }
+    }
+    
+    public long getDiskEntries() {
+        return diskEntries.get();
+    }
+    
+    private String modelName(EmbeddingOptions options) {
+        return options != null && options.getModel() != null ? options.getModel() : defaultModelName;
+    }
+    
+    private float[] lookup(String key) {
+        float[] vector;
+        synchronized (memoryCache) {
+            vector = memoryCache.get(key);
+        }
+        if (vector != null) {
+            memoryHits.incrementAndGet();
+            return vector;
+        }
+        
+        vector = readFromDisk(key);
+        if (vector != null) {
+            diskHits.incrementAndGet();
+            synchronized (memoryCache) {
+                memoryCache.put(key, vector);
+            }
+        }
+        return vector;
+    }
+    
+    private void store(String key, float[] vector) {
+        synchronized (memoryCache) {
+            memoryCache.put(key, vector);
+        }
+        writeToDisk(key, vector);
+    }
+    
+    private float[] readFromDisk(String key) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(diskDirectory.resolve(key)));
+            float[] vector = new float[buffer.remaining() / Float.BYTES];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read cached embedding {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+    
+    private void writeToDisk(String key, float[] vector) {
+        if (diskDirectory == null || maxDiskEntries <= 0) {
+            return;
+        }
+        Path target = diskDirectory.resolve(key);
+        if (Files.exists(target)) {
+            // Another request already stored the same embedding
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        try {
+            // Write to a temporary file first so readers never see a partially written entry
+            Path temp = Files.createTempFile(diskDirectory, key, TEMP_SUFFIX);
+            Files.write(temp, buffer.array());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (diskEntries.incrementAndGet() > maxDiskEntries) {
+                evictFromDisk();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write cached embedding {}: {}", key, e.getMessage());
+        }
+    }
+    
+    /**
+     * Deletes the least recently written entries until the disk tier is a tenth below its
+     * limit, and recounts the entries, which also corrects for concurrent writes of the same key.
+     */
+    private synchronized void evictFromDisk() {
+        if (diskEntries.get() <= maxDiskEntries) {
+            return;
+        }
+        List<DiskEntry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(diskDirectory)) {
+            files.filter(CachingEmbeddingModel::isEntry).forEach(file -> {
+                try {
+                    entries.add(new DiskEntry(file, Files.getLastModifiedTime(file)));
+                } catch (IOException e) {
+                    // Deleted in the meantime
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to list embedding disk cache at {}: {}", diskDirectory, e.getMessage());
+            return;
+        }
+        
+        entries.sort(Comparator.comparing(DiskEntry::written));
+        long keep = maxDiskEntries - maxDiskEntries / 10;
+        int evicted = 0;
+        for (int i = 0; i < entries.size() - keep; i++) {
+            try {
+                Files.deleteIfExists(entries.get(i).file());
+                evicted++;
+            } catch (IOException e) {
+                logger.warn("Failed to evict cached embedding {}: {}", entries.get(i).file(), e.getMessage());
+            }
+        }
+        diskEntries.set(entries.size() - evicted);
+        logger.info("Evicted {} of {} entries from embedding disk cache at {}", evicted, entries.size(), diskDirectory);
+    }
+    
+    private static boolean isEntry(Path file) {
+        return !file.getFileName().toString().endsWith(TEMP_SUFFIX);
+    }
+    
+    private static String cacheKey(String modelName, Integer dimensions, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(modelName).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(dimensions).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private record DiskEntry(Path file, FileTime written) {}
+}
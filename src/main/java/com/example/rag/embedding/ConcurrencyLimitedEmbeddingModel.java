@@ -0,0 +1,44 @@
+package com.example.rag.embedding;
+
+import com.example.rag.service.DownstreamLimiter;
+import com.example.rag.service.DownstreamLimiter.Downstream;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that takes an {@link Downstream#EMBEDDING} permit for every
+ * call that reaches the embedding API. It sits directly around the provider model, inside
+ * the cache, so cache hits never wait for a permit.
+ */
+public class ConcurrencyLimitedEmbeddingModel implements EmbeddingModel {
+    
+    private final EmbeddingModel delegate;
+    
+    private final DownstreamLimiter downstreamLimiter;
+    
+    public ConcurrencyLimitedEmbeddingModel(EmbeddingModel delegate, DownstreamLimiter downstreamLimiter) {
+        this.delegate = delegate;
+        this.downstreamLimiter = downstreamLimiter;
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return downstreamLimiter.call(Downstream.EMBEDDING, () -> delegate.call(request));
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return downstreamLimiter.call(Downstream.EMBEDDING, () -> delegate.embed(document));
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.rag.embedding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link EmbeddingModel} decorator that merges small embedding requests from concurrent
+ * callers into one delegate call. The first caller to arrive opens a batch and waits up
+ * to the window (or until the batch holds {@code maxBatchSize} texts), then sends the
+ * whole batch and hands every caller its own slice of the result. Requests that are
+ * already large enough, such as ingestion batches, go straight to the delegate.
+ */
+public class MicroBatchingEmbeddingModel implements EmbeddingModel {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatchingEmbeddingModel.class);
+    
+    private final EmbeddingModel delegate;
+    
+    private final long windowNanos;
+    
+    private final int maxBatchSize;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    private final Map<BatchKey, PendingBatch> openBatches = new HashMap<>();
+    
+    private final AtomicLong batches = new AtomicLong();
+    
+    private final AtomicLong batchedTexts = new AtomicLong();
+    
+    public MicroBatchingEmbeddingModel(EmbeddingModel delegate, long windowMillis, int maxBatchSize) {
+        this.delegate = delegate;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMillis));
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        if (texts.isEmpty() || texts.size() >= maxBatchSize || windowNanos == 0) {
+            return delegate.call(request);
+        }
+        
+        BatchKey key = BatchKey.of(request.getOptions());
+        PendingBatch batch;
+        int offset;
+        boolean leader = false;
+        
+        lock.lock();
+        try {
+            batch = openBatches.get(key);
+            // Texts that would push the open batch past the limit start the next one instead
+            if (batch != null && batch.texts.size() + texts.size() > maxBatchSize) {
+                openBatches.remove(key, batch);
+                batch.full.signal();
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new PendingBatch(request.getOptions(), lock.newCondition());
+                openBatches.put(key, batch);
+                leader = true;
+            }
+            offset = batch.texts.size();
+            batch.texts.addAll(texts);
+            if (batch.texts.size() >= maxBatchSize) {
+                openBatches.remove(key, batch);
+                batch.full.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        if (leader) {
+            awaitWindow(key, batch);
+            dispatch(batch);
+        }
+        
+        EmbeddingResponse response = await(batch.result);
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(response.getResults().get(offset + i).getOutput(), i));
+        }
+        return new EmbeddingResponse(embeddings, response.getMetadata());
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+    
+    public long getBatches() {
+        return batches.get();
+    }
+    
+    public long getBatchedTexts() {
+        return batchedTexts.get();
+    }
+    
+    private void awaitWindow(BatchKey key, PendingBatch batch) {
+        lock.lock();
+        try {
+            long remaining = windowNanos;
+            while (openBatches.get(key) == batch && remaining > 0) {
+                remaining = batch.full.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            // Send what has been collected so far rather than failing the waiting callers
+            Thread.currentThread().interrupt();
+        } finally {
+            openBatches.remove(key, batch);
+            lock.unlock();
+        }
+    }
+    
+    private void dispatch(PendingBatch batch) {
+        // The batch is closed, so its text list no longer changes
+        try {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(batch.texts, batch.options));
+            batches.incrementAndGet();
+            batchedTexts.addAndGet(batch.texts.size());
+            logger.debug("Embedded {} texts from concurrent requests in one call", batch.texts.size());
+            batch.result.complete(response);
+        } catch (RuntimeException | Error e) {
+            batch.result.completeExceptionally(e);
+        }
+    }
+    
+    private static EmbeddingResponse await(CompletableFuture<EmbeddingResponse> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+    
+    private record BatchKey(String model, Integer dimensions) {
+        
+        static BatchKey of(EmbeddingOptions options) {
+            return options == null ? new BatchKey(null, null) : new BatchKey(options.getModel(), options.getDimensions());
+        }
+    }
+    
+    private static final class PendingBatch {
+        
+        private final EmbeddingOptions options;
+        
+        private final Condition full;
+        
+        private final List<String> texts = new ArrayList<>();
+        
+        private final CompletableFuture<EmbeddingResponse> result = new CompletableFuture<>();
+        
+        PendingBatch(EmbeddingOptions options, Condition full) {
+            this.options = options;
+            this.full = full;
+        }
+    }
+}
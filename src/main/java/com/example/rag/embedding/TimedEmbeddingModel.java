@@ -0,0 +1,44 @@
+package com.example.rag.embedding;
+
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * {@link EmbeddingModel} decorator that records the {@link Stage#EMBEDDING} stage. It wraps the
+ * provider model directly, so the timer measures provider latency only: cache hits, batching
+ * windows and permit waits are not included.
+ */
+public class TimedEmbeddingModel implements EmbeddingModel {
+    
+    private final EmbeddingModel delegate;
+    
+    private final RagMetrics ragMetrics;
+    
+    public TimedEmbeddingModel(EmbeddingModel delegate, RagMetrics ragMetrics) {
+        this.delegate = delegate;
+        this.ragMetrics = ragMetrics;
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return ragMetrics.time(Stage.EMBEDDING, () -> delegate.call(request));
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return ragMetrics.time(Stage.EMBEDDING, () -> delegate.embed(document));
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    public EmbeddingModel getDelegate() {
+        return delegate;
+    }
+}
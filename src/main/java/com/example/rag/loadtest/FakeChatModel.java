@@ -0,0 +1,65 @@
+package com.example.rag.loadtest;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Deterministic stand-in for the chat API. The answer echoes the question and the size of
+ * the context, arrives after a fixed latency and, when streamed, is split into word tokens
+ * with a fixed delay between them.
+ */
+public class FakeChatModel implements ChatModel {
+    
+    private final long latencyMillis;
+    
+    private final long tokenDelayMillis;
+    
+    public FakeChatModel(long latencyMillis, long tokenDelayMillis) {
+        this.latencyMillis = latencyMillis;
+        this.tokenDelayMillis = tokenDelayMillis;
+    }
+    
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String[] tokens = tokens(prompt);
+        FakeLatency.sleep((latencyMillis + tokenDelayMillis * tokens.length) * 1000);
+        return response(String.join("", tokens));
+    }
+    
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        Flux<ChatResponse> tokens = Flux.fromArray(tokens(prompt)).map(FakeChatModel::response);
+        if (tokenDelayMillis > 0) {
+            tokens = tokens.delayElements(Duration.ofMillis(tokenDelayMillis));
+        }
+        return Mono.delay(Duration.ofMillis(latencyMillis)).thenMany(tokens);
+    }
+    
+    private static String[] tokens(Prompt prompt) {
+        String question = prompt.getInstructions().stream()
+                .filter(message -> message.getMessageType() == MessageType.USER)
+                .map(Message::getText)
+                .reduce((first, second) -> second)
+                .orElse("");
+        int contextCharacters = prompt.getInstructions().stream()
+                .filter(message -> message.getMessageType() == MessageType.SYSTEM)
+                .mapToInt(message -> message.getText().length())
+                .sum();
+        String answer = "Load-test answer to \"" + question + "\" from " + contextCharacters + " characters of context.";
+        return answer.split("(?<= )");
+    }
+    
+    private static ChatResponse response(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.rag.loadtest;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Deterministic stand-in for the embedding API. Each word of the text is hashed into one
+ * signed dimension, so texts sharing words are similar and retrieval returns sensible
+ * neighbours. Every call sleeps for a fixed latency plus a per-text cost to mimic the provider.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+    
+    // Weight of the component shared by all vectors. Unrelated texts score 2/3 rather than 0,
+    // as real embeddings cluster well above zero, so the service's similarity thresholds
+    // still separate better matches from worse ones.
+    private static final double SHARED_WEIGHT_SQUARED = 2.0;
+    
+    private final int dimensions;
+    
+    private final long latencyMillis;
+    
+    private final long perTextLatencyMicros;
+    
+    public FakeEmbeddingModel(int dimensions, long latencyMillis, long perTextLatencyMicros) {
+        this.dimensions = dimensions;
+        this.latencyMillis = latencyMillis;
+        this.perTextLatencyMicros = perTextLatencyMicros;
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        FakeLatency.sleep(latencyMillis * 1000 + perTextLatencyMicros * texts.size());
+        
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vector(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+    
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+    
+    float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}/.%]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            int hash = mix(word.hashCode());
+            vector[1 + Math.floorMod(hash, dimensions - 1)] += (hash & 0x10000) == 0 ? 1f : -1f;
+        }
+        
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        if (norm == 0) {
+            vector[0] = 1f;
+            return vector;
+        }
+        
+        // Word components get unit length, then dimension 0 carries the shared component
+        float wordScale = (float) (1 / Math.sqrt(norm));
+        float totalScale = (float) (1 / Math.sqrt(1 + SHARED_WEIGHT_SQUARED));
+        for (int i = 1; i < dimensions; i++) {
+            vector[i] *= wordScale * totalScale;
+        }
+        vector[0] = (float) Math.sqrt(SHARED_WEIGHT_SQUARED) * totalScale;
+        return vector;
+    }
+    
+    private static int mix(int hash) {
+        // Murmur3 finalizer, so similar words land in unrelated dimensions
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.rag.loadtest;
+
+import com.example.rag.client.ExternalLlmRequest;
+import com.example.rag.client.ExternalLlmResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Stand-in external LLM for {@code /api/rag/ask-external} in load-test mode. Point the
+ * request's {@code url} at {@code /loadtest/external-llm} on the same server.
+ */
+@RestController
+@Profile("loadtest")
+public class FakeExternalLlmController {
+    
+    @Value("${app.loadtest.external-llm.latency-ms:300}")
+    private long latencyMillis;
+    
+    @PostMapping("/loadtest/external-llm")
+    public ExternalLlmResponse generate(@RequestBody ExternalLlmRequest request) {
+        FakeLatency.sleep(latencyMillis * 1000);
+        int contextCharacters = request.context() != null ? request.context().length() : 0;
+        return new ExternalLlmResponse("Load-test external answer to \"" + request.prompt() + "\" from "
+                + contextCharacters + " characters of context.");
+    }
+}
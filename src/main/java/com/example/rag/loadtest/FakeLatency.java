@@ -0,0 +1,21 @@
+package com.example.rag.loadtest;
+
+import java.util.concurrent.TimeUnit;
+
+final class FakeLatency {
+    
+    private FakeLatency() {
+    }
+    
+    static void sleep(long micros) {
+        if (micros <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MICROSECONDS.sleep(micros);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating latency", e);
+        }
+    }
+}
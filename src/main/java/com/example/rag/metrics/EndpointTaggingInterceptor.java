@@ -0,0 +1,30 @@
+package com.example.rag.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Makes the matched request pattern (e.g. {@code /api/rag/search}) the endpoint tag of the
+ * stage metrics recorded while the request is handled.
+ */
+public class EndpointTaggingInterceptor implements AsyncHandlerInterceptor {
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        RagMetrics.setEndpoint(pattern != null ? pattern.toString() : request.getRequestURI());
+        return true;
+    }
+    
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RagMetrics.clearEndpoint();
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RagMetrics.clearEndpoint();
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.rag.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage latency timers ({@code rag.stage}) and retrieval size summaries, tagged with the
+ * endpoint that triggered the work and, for the embedding and LLM stages, the model. The
+ * endpoint is held per thread; work handed to another thread carries it along through
+ * {@link #withEndpoint(Callable)}.
+ */
+@Component
+public class RagMetrics {
+    
+    public enum Stage {
+        CSV_PARSE("csv_parse"),
+        DOCUMENT_CONVERSION("document_conversion"),
+        EMBEDDING("embedding"),
+        VECTOR_SEARCH("vector_search"),
+        CONTEXT_ASSEMBLY("context_assembly"),
+        LLM_CALL("llm_call"),
+        RESPONSE_SERIALIZATION("response_serialization");
+        
+        private final String tag;
+        
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+    
+    public static final String NO_ENDPOINT = "none";
+    
+    private static final ThreadLocal<String> currentEndpoint = new ThreadLocal<>();
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${spring.ai.openai.embedding.options.model:text-embedding-ada-002}")
+    private String embeddingModel;
+    
+    @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}")
+    private String chatModel;
+    
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    
+    public <T> T time(Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+    
+    public void time(Stage stage, Runnable work) {
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+    
+    public void record(Stage stage, long nanos) {
+        record(stage, currentEndpoint(), modelFor(stage), nanos);
+    }
+    
+    public void record(Stage stage, String endpoint, String model, long nanos) {
+        timers.computeIfAbsent(stage.tag + '|' + endpoint + '|' + model, key -> Timer.builder("rag.stage")
+                        .description("Time spent in each stage of ingestion and query handling")
+                        .tag("stage", stage.tag)
+                        .tag("endpoint", endpoint)
+                        .tag("model", model)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    public void recordDocumentsRetrieved(int count) {
+        summary("rag.documents.retrieved", "documents", "Documents returned by a retrieval").record(count);
+    }
+    
+    public void recordContextSize(int characters) {
+        summary("rag.context.size", "characters", "Size of the context sent to the LLM").record(characters);
+    }
+    
+    public static String currentEndpoint() {
+        String endpoint = currentEndpoint.get();
+        return endpoint != null ? endpoint : NO_ENDPOINT;
+    }
+    
+    public static void setEndpoint(String endpoint) {
+        currentEndpoint.set(endpoint);
+    }
+    
+    public static void clearEndpoint() {
+        currentEndpoint.remove();
+    }
+    
+    /**
+     * Returns a task that runs with the calling thread's endpoint, for work started on
+     * another thread.
+     */
+    public static <T> Callable<T> withEndpoint(Callable<T> task) {
+        String endpoint = currentEndpoint.get();
+        return () -> {
+            String previous = currentEndpoint.get();
+            currentEndpoint.set(endpoint);
+            try {
+                return task.call();
+            } finally {
+                currentEndpoint.set(previous);
+            }
+        };
+    }
+    
+    public static Runnable withEndpoint(Runnable task) {
+        String endpoint = currentEndpoint.get();
+        return () -> {
+            String previous = currentEndpoint.get();
+            currentEndpoint.set(endpoint);
+            try {
+                task.run();
+            } finally {
+                currentEndpoint.set(previous);
+            }
+        };
+    }
+    
+    private DistributionSummary summary(String name, String unit, String description) {
+        String endpoint = currentEndpoint();
+        return summaries.computeIfAbsent(name + '|' + endpoint, key -> DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(unit)
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+    
+    public String modelFor(Stage stage) {
+        return switch (stage) {
+            case EMBEDDING -> embeddingModel;
+            case LLM_CALL -> chatModel;
+            default -> "none";
+        };
+    }
+}
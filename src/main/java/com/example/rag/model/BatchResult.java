@@ -0,0 +1,32 @@
+package com.example.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * The outcome of one query in a batch: search results or an answer on success, a
+ * message on error. Fields that do not apply are omitted from the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(
+        int index,
+        String query,
+        String status,
+        String message,
+        Integer totalResults,
+        List<SearchResult> results,
+        String response) {
+
+    public static BatchResult searched(int index, String query, List<SearchResult> results) {
+        return new BatchResult(index, query, "success", null, results.size(), results, null);
+    }
+
+    public static BatchResult answered(int index, String query, String response) {
+        return new BatchResult(index, query, "success", null, null, null, response);
+    }
+
+    public static BatchResult failed(int index, String query, String message) {
+        return new BatchResult(index, query, "error", message, null, null, null);
+    }
+}
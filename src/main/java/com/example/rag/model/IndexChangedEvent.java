@@ -0,0 +1,8 @@
+package com.example.rag.model;
+
+/**
+ * Published whenever documents are added to or removed from the vector store, so that
+ * anything derived from its contents can be discarded.
+ */
+public record IndexChangedEvent(String source, int storedDocuments, int deletedDocuments) {
+}
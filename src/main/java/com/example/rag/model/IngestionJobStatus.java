@@ -0,0 +1,57 @@
+package com.example.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * Point-in-time view of an ingestion job, as returned by the job endpoints and kept in
+ * Redis as the job's checkpoint.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IngestionJobStatus(
+        String jobId,
+        String file,
+        State status,
+        String message,
+        boolean resumed,
+        Instant submittedAt,
+        Instant startedAt,
+        Instant finishedAt,
+        Progress progress,
+        IngestionResult result) {
+
+    public enum State {
+        @JsonProperty("queued") QUEUED,
+        @JsonProperty("running") RUNNING,
+        @JsonProperty("succeeded") SUCCEEDED,
+        @JsonProperty("failed") FAILED,
+        @JsonProperty("cancelled") CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * Counts so far. Embedding and writing happen in one vector store call, so stored
+     * documents are both embedded and written. {@code percent} and {@code etaSeconds} are
+     * estimated from the bytes of the file read so far and are absent when the file size
+     * is unknown.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Progress(
+            long rowsParsed,
+            long documentsUnchanged,
+            long documentsStored,
+            long documentsFailed,
+            long batchesStored,
+            long batchesFailed,
+            long bytesRead,
+            long totalBytes,
+            double documentsPerSecond,
+            Double percent,
+            Long etaSeconds) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.rag.model;
+
+public record IngestionResult(
+        int totalDocuments,
+        int storedDocuments,
+        int unchangedDocuments,
+        int deletedDocuments,
+        int totalBatches,
+        int failedBatches) {
+
+    public boolean isPartial() {
+        return failedBatches > 0 && storedDocuments > 0;
+    }
+}
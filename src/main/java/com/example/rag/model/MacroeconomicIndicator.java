@@ -2,6 +2,9 @@ package com.example.rag.model;
 
 import com.opencsv.bean.CsvBindByName;
 
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
 public class MacroeconomicIndicator {
     
     @CsvBindByName(column = "Indicators")
@@ -62,6 +65,24 @@ public class MacroeconomicIndicator {
                 year, indicators, value, units);
     }
     
+    /**
+     * Stable identifier derived from the row's content, so the same row always maps to
+     * the same document and a changed value yields a new one.
+     */
+    public String contentId() {
+        String key = indicators + '\u001F' + units + '\u001F' + year + '\u001F' + value;
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    /**
+     * Identifier of the row's document when loaded from the file {@code source}. The same
+     * row in two files is two documents, so reloading one file never touches the other's.
+     */
+    public String documentId(String source) {
+        String key = source + '\u001F' + contentId();
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
     @Override
     public String toString() {
         return "MacroeconomicIndicator{" +
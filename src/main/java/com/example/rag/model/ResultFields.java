@@ -0,0 +1,35 @@
+package com.example.rag.model;
+
+import java.util.List;
+
+/**
+ * Which parts of a matched document a search response includes. Leaving out metadata or
+ * content shrinks large result lists considerably.
+ */
+public record ResultFields(boolean content, boolean metadata) {
+
+    public static final ResultFields ALL = new ResultFields(true, true);
+
+    /**
+     * Parses a list of field names; {@code null} selects every field.
+     *
+     * @throws IllegalArgumentException if a name is neither {@code content} nor {@code metadata}
+     */
+    public static ResultFields of(List<String> names) {
+        if (names == null) {
+            return ALL;
+        }
+        boolean content = false;
+        boolean metadata = false;
+        for (String name : names) {
+            if ("content".equals(name)) {
+                content = true;
+            } else if ("metadata".equals(name)) {
+                metadata = true;
+            } else {
+                throw new IllegalArgumentException("Fields may only contain 'content' and 'metadata'");
+            }
+        }
+        return new ResultFields(content, metadata);
+    }
+}
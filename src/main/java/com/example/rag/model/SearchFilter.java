@@ -0,0 +1,71 @@
+package com.example.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conditions on the indexed metadata of row documents; every condition that is set must
+ * hold. Years are fiscal-year starts, so {@code fromYear: 2010} covers 2010/11 onwards,
+ * and {@code indicators} and {@code units} match any of the listed names exactly.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SearchFilter(
+        Integer fromYear,
+        Integer toYear,
+        List<String> indicators,
+        List<String> units,
+        Double minValue,
+        Double maxValue) {
+
+    private static final Pattern FISCAL_YEAR = Pattern.compile("\\s*(\\d{4})(/\\d{2}\\w*)?\\s*");
+
+    /**
+     * The filter for a single fiscal year such as {@code 2007/08} or {@code 2007}.
+     *
+     * @throws IllegalArgumentException if the year does not start with four digits
+     */
+    public static SearchFilter forYear(String year) {
+        int start = fiscalYearStart(year);
+        if (start < 0) {
+            throw new IllegalArgumentException("Year must be a fiscal year such as 2007/08");
+        }
+        return new SearchFilter(start, start, null, null, null, null);
+    }
+
+    /**
+     * The start of a fiscal year label as used in the CSV, e.g. 2016 for {@code 2016/17P},
+     * or -1 if the label is not a fiscal year.
+     */
+    public static int fiscalYearStart(String year) {
+        if (year == null) {
+            return -1;
+        }
+        Matcher matcher = FISCAL_YEAR.matcher(year);
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    /**
+     * Returns this filter if its conditions are consistent.
+     *
+     * @throws IllegalArgumentException if a range is inverted or a name list is empty or holds a blank name
+     */
+    public SearchFilter validated() {
+        if (fromYear != null && toYear != null && fromYear > toYear) {
+            throw new IllegalArgumentException("Filter fromYear cannot be after toYear");
+        }
+        if (minValue != null && maxValue != null && minValue > maxValue) {
+            throw new IllegalArgumentException("Filter minValue cannot be greater than maxValue");
+        }
+        if (!isNamesOrNull(indicators) || !isNamesOrNull(units)) {
+            throw new IllegalArgumentException("Filter indicators and units must be non-empty lists of names");
+        }
+        return this;
+    }
+
+    private static boolean isNamesOrNull(List<String> names) {
+        return names == null || !names.isEmpty() && names.stream().noneMatch(name -> name == null || name.isBlank());
+    }
+}
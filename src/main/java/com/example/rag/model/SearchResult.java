@@ -0,0 +1,21 @@
+package com.example.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.ai.document.Document;
+
+import java.util.Map;
+
+/**
+ * One matched document as returned to clients. Fields left out by the requested
+ * {@link ResultFields} are null and omitted from the JSON.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SearchResult(String content, Map<String, Object> metadata) {
+
+    public static SearchResult of(Document document, ResultFields fields) {
+        // The document's own metadata map is serialized as is rather than copied
+        return new SearchResult(
+                fields.content() ? document.getText() : null,
+                fields.metadata() ? document.getMetadata() : null);
+    }
+}
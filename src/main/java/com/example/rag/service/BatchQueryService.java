@@ -0,0 +1,108 @@
+package com.example.rag.service;
+
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.model.BatchResult;
+import com.example.rag.model.ResultFields;
+import com.example.rag.model.SearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+/**
+ * Runs many searches or questions from one request. All queries are embedded in a single
+ * call, then processed in parallel; results are emitted in completion order, each tagged
+ * with the index of its query.
+ */
+@Service
+public class BatchQueryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BatchQueryService.class);
+    
+    @Autowired
+    private VectorStoreService vectorStoreService;
+    
+    @Autowired
+    private RagService ragService;
+    
+    @Autowired
+    private ExecutorService outboundExecutor;
+    
+    @Value("${app.batch.max-concurrent-searches:16}")
+    private int maxConcurrentSearches;
+    
+    @Value("${app.batch.max-concurrent-asks:4}")
+    private int maxConcurrentAsks;
+    
+    public Flux<BatchResult> searchBatch(List<String> queries, int topK, double similarityThreshold, String mode,
+                                         ResultFields fields) {
+        logger.info("Processing batch search of {} queries", queries.size());
+        
+        return process(queries, maxConcurrentSearches, (index, query) -> {
+            List<Document> results = mode != null
+                    ? vectorStoreService.searchSimilarDocuments(query, topK, similarityThreshold, mode)
+                    : vectorStoreService.searchSimilarDocuments(query, topK, similarityThreshold);
+            
+            return BatchResult.searched(index, query, results.stream()
+                    .map(document -> SearchResult.of(document, fields))
+                    .toList());
+        });
+    }
+    
+    /**
+     * Answers each prompt as {@link RagService#generateResponse(String)} would. At most
+     * {@code app.batch.max-concurrent-asks} answers are generated at once per batch, so a
+     * large batch does not take every chat permit from interactive requests.
+     */
+    public Flux<BatchResult> askBatch(List<String> prompts) {
+        logger.info("Processing batch ask of {} prompts", prompts.size());
+        
+        return process(prompts, maxConcurrentAsks,
+                (index, prompt) -> BatchResult.answered(index, prompt, ragService.generateResponse(prompt)));
+    }
+    
+    private Flux<BatchResult> process(List<String> queries, int maxConcurrency, QueryHandler handler) {
+        Scheduler scheduler = Schedulers.fromExecutor(outboundExecutor);
+        
+        // Tasks are created here so they carry the request's endpoint onto the worker threads
+        Runnable embedQueries = RagMetrics.withEndpoint(() -> vectorStoreService.embedQueries(queries));
+        List<Callable<BatchResult>> tasks = IntStream.range(0, queries.size())
+                .mapToObj(index -> RagMetrics.withEndpoint(outcome(index, queries.get(index), handler)))
+                .toList();
+        
+        // Embedding and searching block, so everything runs off the request thread once subscribed
+        return Mono.fromRunnable(embedQueries)
+                .subscribeOn(scheduler)
+                .thenMany(Flux.fromIterable(tasks)
+                        .flatMap(task -> Mono.fromCallable(task).subscribeOn(scheduler), Math.max(1, maxConcurrency)));
+    }
+    
+    private static Callable<BatchResult> outcome(int index, String query, QueryHandler handler) {
+        return () -> {
+            try {
+                return handler.handle(index, query);
+            } catch (Exception e) {
+                // One failed query does not fail the rest of the batch
+                logger.error("Error processing batch query {}: {}", index, e.getMessage(), e);
+                return BatchResult.failed(index, query, e.getMessage());
+            }
+        };
+    }
+    
+    @FunctionalInterface
+    private interface QueryHandler {
+        
+        BatchResult handle(int index, String query);
+    }
+}
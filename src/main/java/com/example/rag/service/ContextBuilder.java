@@ -0,0 +1,214 @@
+package com.example.rag.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Packs retrieved documents into the LLM context within a token budget.
+ * <p>
+ * Documents are picked in maximal marginal relevance order, so each pick trades its
+ * relevance against its similarity to what is already picked; near-duplicates of a
+ * picked document are dropped outright. Rows of the same indicator are then written as
+ * one compact line, e.g. {@code Revenues (Annual % Change): 2007/08 22.7; 2008/09 18.1},
+ * instead of repeating the indicator, units and year for every row. Rows that disagree on
+ * the value for a year keep every value, e.g. {@code 2007/08 22.7, 23.1}. Lines are sorted
+ * by indicator and year, so the same documents always produce the same context.
+ */
+@Component
+public class ContextBuilder {
+    
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+    
+    @Value("${app.context.max-tokens:1500}")
+    private int maxTokens;
+    
+    @Value("${app.context.mmr-lambda:0.7}")
+    private double mmrLambda;
+    
+    @Value("${app.context.duplicate-threshold:0.9}")
+    private double duplicateThreshold;
+    
+    public String build(List<Document> documents) {
+        Map<String, Map<String, Set<String>>> rowsByIndicator = new TreeMap<>();
+        List<String> otherTexts = new ArrayList<>();
+        int tokens = 0;
+        
+        for (Document document : select(documents)) {
+            Row row = Row.of(document);
+            int cost = row != null ? cost(rowsByIndicator, row) : estimate(document.getText());
+            if (tokens + cost > maxTokens) {
+                continue;
+            }
+            tokens += cost;
+            
+            if (row != null) {
+                rowsByIndicator.computeIfAbsent(row.header(), header -> new TreeMap<>())
+                        .computeIfAbsent(row.year(), year -> new TreeSet<>())
+                        .add(row.value());
+            } else {
+                otherTexts.add(document.getText());
+            }
+        }
+        
+        StringBuilder context = new StringBuilder();
+        rowsByIndicator.forEach((header, values) -> {
+            context.append(header).append(':');
+            String separator = " ";
+            for (Map.Entry<String, Set<String>> value : values.entrySet()) {
+                context.append(separator).append(value.getKey()).append(' ').append(String.join(", ", value.getValue()));
+                separator = "; ";
+            }
+            context.append('\n');
+        });
+        for (String text : otherTexts) {
+            context.append(text).append('\n');
+        }
+        return context.toString().stripTrailing();
+    }
+    
+    /**
+     * Greedy maximal marginal relevance over the retrieved order. Relevance is the
+     * document's score, or its rank when the store returned none; similarity is word
+     * overlap, with rows of the same indicator, units, year and value counting as identical.
+     */
+    private List<Document> select(List<Document> documents) {
+        int count = documents.size();
+        double[] relevance = new double[count];
+        List<Set<String>> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Double score = documents.get(i).getScore();
+            relevance[i] = score != null ? score : 1.0 - (double) i / count;
+            words.add(words(documents.get(i).getText()));
+        }
+        
+        double[] maxSimilarity = new double[count];
+        boolean[] done = new boolean[count];
+        List<Document> selected = new ArrayList<>(count);
+        for (int picks = 0; picks < count; picks++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double score = mmrLambda * relevance[i] - (1 - mmrLambda) * maxSimilarity[i];
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            
+            done[best] = true;
+            selected.add(documents.get(best));
+            for (int i = 0; i < count; i++) {
+                if (done[i]) {
+                    continue;
+                }
+                double similarity = similarity(documents.get(best), words.get(best), documents.get(i), words.get(i));
+                if (similarity >= duplicateThreshold) {
+                    done[i] = true;
+                } else {
+                    maxSimilarity[i] = Math.max(maxSimilarity[i], similarity);
+                }
+            }
+        }
+        return selected;
+    }
+    
+    /**
+     * A row's cost is its own cell, plus the line header for the first row of an indicator;
+     * a further value for a year already written only adds that value.
+     */
+    private int cost(Map<String, Map<String, Set<String>>> rowsByIndicator, Row row) {
+        Map<String, Set<String>> years = rowsByIndicator.get(row.header());
+        if (years == null) {
+            return estimate(row.header()) + estimate(row.cell());
+        }
+        Set<String> values = years.get(row.year());
+        if (values == null) {
+            return estimate(row.cell());
+        }
+        return values.contains(row.value()) ? 0 : estimate(", " + row.value());
+    }
+    
+    private int estimate(String text) {
+        return text == null || text.isEmpty() ? 0 : tokenCountEstimator.estimate(text);
+    }
+    
+    private static double similarity(Document first, Set<String> firstWords, Document second, Set<String> secondWords) {
+        Map<String, Object> firstMetadata = first.getMetadata();
+        Map<String, Object> secondMetadata = second.getMetadata();
+        if (firstMetadata.get("indicator") != null && firstMetadata.get("year") != null
+                && Objects.equals(firstMetadata.get("indicator"), secondMetadata.get("indicator"))
+                && Objects.equals(firstMetadata.get("units"), secondMetadata.get("units"))
+                && Objects.equals(firstMetadata.get("year"), secondMetadata.get("year"))
+                && Objects.equals(firstMetadata.get("value"), secondMetadata.get("value"))) {
+            return 1.0;
+        }
+        
+        if (firstWords.isEmpty() && secondWords.isEmpty()) {
+            return 1.0;
+        }
+        int shared = 0;
+        for (String word : firstWords) {
+            if (secondWords.contains(word)) {
+                shared++;
+            }
+        }
+        return (double) shared / (firstWords.size() + secondWords.size() - shared);
+    }
+    
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        if (text != null) {
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{Alnum}./%]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+    
+    /**
+     * A document that is one indicator value for one year, as written by the CSV ingestion.
+     */
+    private record Row(String header, String year, String value) {
+        
+        static Row of(Document document) {
+            Map<String, Object> metadata = document.getMetadata();
+            Object indicator = metadata.get("indicator");
+            Object year = metadata.get("year");
+            Object value = metadata.get("value");
+            if (indicator == null || year == null || value == null) {
+                return null;
+            }
+            
+            Object units = metadata.get("units");
+            String header = units != null && !units.toString().isBlank()
+                    ? indicator + " (" + units + ")"
+                    : indicator.toString();
+            return new Row(header, year.toString(), value.toString());
+        }
+        
+        String cell() {
+            return "; " + year + " " + value;
+        }
+    }
+}
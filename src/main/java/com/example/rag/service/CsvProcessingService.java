@@ -1,31 +1,51 @@
 package com.example.rag.service;
 
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
 import com.example.rag.model.MacroeconomicIndicator;
+import com.opencsv.bean.CsvToBean;
 import com.opencsv.bean.CsvToBeanBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 @Service
 public class CsvProcessingService {
     
     private static final Logger logger = LoggerFactory.getLogger(CsvProcessingService.class);
     
+    @Autowired
+    private RagMetrics ragMetrics;
+    
+    @Value("${app.csv.read-buffer-size:65536}")
+    private int readBufferSize;
+    
     public List<MacroeconomicIndicator> loadDataFromCsv(String csvFileName) {
-        try {
-            ClassPathResource resource = new ClassPathResource(csvFileName);
-            Reader reader = new InputStreamReader(resource.getInputStream());
-            
-            List<MacroeconomicIndicator> indicators = new CsvToBeanBuilder<MacroeconomicIndicator>(reader)
-                    .withType(MacroeconomicIndicator.class)
-                    .withIgnoreLeadingWhiteSpace(true)
-                    .build()
-                    .parse();
+        try (Reader reader = openReader(csvFileName, bytes -> {})) {
+            List<MacroeconomicIndicator> indicators = ragMetrics.time(Stage.CSV_PARSE, () -> buildCsvToBean(reader).parse());
             
             logger.info("Successfully loaded {} macroeconomic indicators from CSV", indicators.size());
             return indicators;
@@ -36,12 +56,153 @@ public class CsvProcessingService {
         }
     }
     
+    /**
+     * Lazily parses the CSV at the given location, one row at a time. The location is
+     * resolved against the file system first and falls back to the classpath; files
+     * ending in {@code .gz} are decompressed on the fly. The returned stream holds the
+     * underlying reader open and must be closed by the caller.
+     */
+    public Stream<MacroeconomicIndicator> streamDataFromCsv(String csvLocation) {
+        return streamDataFromCsv(csvLocation, bytes -> {});
+    }
+    
+    /**
+     * As {@link #streamDataFromCsv(String)}, reporting the number of file bytes consumed
+     * (compressed bytes for {@code .gz} files) to {@code bytesRead} as reading proceeds.
+     */
+    public Stream<MacroeconomicIndicator> streamDataFromCsv(String csvLocation, LongConsumer bytesRead) {
+        Reader reader;
+        try {
+            reader = openReader(csvLocation, bytesRead);
+        } catch (IOException e) {
+            logger.error("Error opening CSV data: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to open CSV data", e);
+        }
+        
+        // Parsing happens as rows are pulled, so its time is summed and recorded once the stream closes
+        Iterator<MacroeconomicIndicator> parsed = buildCsvToBean(reader).iterator();
+        long[] parseNanos = new long[1];
+        Iterator<MacroeconomicIndicator> timed = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                long start = System.nanoTime();
+                try {
+                    return parsed.hasNext();
+                } finally {
+                    parseNanos[0] += System.nanoTime() - start;
+                }
+            }
+            
+            @Override
+            public MacroeconomicIndicator next() {
+                long start = System.nanoTime();
+                try {
+                    return parsed.next();
+                } finally {
+                    parseNanos[0] += System.nanoTime() - start;
+                }
+            }
+        };
+        
+        Spliterator<MacroeconomicIndicator> rows = Spliterators.spliteratorUnknownSize(
+                timed, Spliterator.ORDERED | Spliterator.NONNULL);
+        
+        return StreamSupport.stream(rows, false)
+                .onClose(() -> {
+                    ragMetrics.record(Stage.CSV_PARSE, parseNanos[0]);
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+    
+    public Stream<MacroeconomicIndicator> streamValidData(String csvLocation) {
+        return streamDataFromCsv(csvLocation).filter(this::isValid);
+    }
+    
+    public Stream<MacroeconomicIndicator> streamValidData(String csvLocation, LongConsumer bytesRead) {
+        return streamDataFromCsv(csvLocation, bytesRead).filter(this::isValid);
+    }
+    
+    /**
+     * Size of the file at the given location in bytes, or -1 if it cannot be determined.
+     */
+    public long sizeOf(String csvLocation) {
+        try {
+            return isFile(csvLocation)
+                    ? Files.size(Path.of(csvLocation))
+                    : new ClassPathResource(csvLocation).contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+    
     public List<MacroeconomicIndicator> filterValidData(List<MacroeconomicIndicator> indicators) {
         return indicators.stream()
-                .filter(indicator -> 
-                    indicator.getIndicators() != null && !indicator.getIndicators().trim().isEmpty() &&
-                    indicator.getValue() != null && !indicator.getValue().trim().isEmpty() &&
-                    !indicator.getValue().equals("-"))
+                .filter(this::isValid)
                 .toList();
     }
-}
\ No newline at end of file
+    
+    private boolean isValid(MacroeconomicIndicator indicator) {
+        return indicator.getIndicators() != null && !indicator.getIndicators().trim().isEmpty() &&
+                indicator.getValue() != null && !indicator.getValue().trim().isEmpty() &&
+                !indicator.getValue().equals("-");
+    }
+    
+    private CsvToBean<MacroeconomicIndicator> buildCsvToBean(Reader reader) {
+        return new CsvToBeanBuilder<MacroeconomicIndicator>(reader)
+                .withType(MacroeconomicIndicator.class)
+                .withIgnoreLeadingWhiteSpace(true)
+                .build();
+    }
+    
+    private Reader openReader(String csvLocation, LongConsumer bytesRead) throws IOException {
+        InputStream input = new CountingInputStream(isFile(csvLocation)
+                ? Files.newInputStream(Path.of(csvLocation))
+                : new ClassPathResource(csvLocation).getInputStream(), bytesRead);
+        
+        if (csvLocation.endsWith(".gz")) {
+            input = new GZIPInputStream(input, readBufferSize);
+        }
+        
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), readBufferSize);
+    }
+    
+    private boolean isFile(String csvLocation) {
+        try {
+            return Files.isRegularFile(Path.of(csvLocation));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+    
+    private static class CountingInputStream extends FilterInputStream {
+        
+        private final LongConsumer bytesRead;
+        
+        CountingInputStream(InputStream input, LongConsumer bytesRead) {
+            super(input);
+            this.bytesRead = bytesRead;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                bytesRead.accept(1);
+            }
+            return value;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                bytesRead.accept(count);
+            }
+            return count;
+        }
+    }
+}
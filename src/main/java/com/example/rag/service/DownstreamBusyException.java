@@ -0,0 +1,22 @@
+package com.example.rag.service;
+
+/**
+ * Thrown when no permit for a downstream dependency became free within the acquire timeout.
+ */
+public class DownstreamBusyException extends RuntimeException {
+    
+    private final long timeoutMs;
+    
+    public DownstreamBusyException(DownstreamLimiter.Downstream downstream, long timeoutMs) {
+        super("Too many concurrent " + downstream + " calls; no capacity within " + timeoutMs + " ms");
+        this.timeoutMs = timeoutMs;
+    }
+    
+    /**
+     * How long the caller waited for a permit, in whole seconds and at least one; a fair
+     * {@code Retry-After} for the client.
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (timeoutMs + 999) / 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.rag.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of concurrent calls to each downstream dependency. With request handling
+ * on virtual threads the number of in-flight requests is no longer bounded by a thread pool,
+ * so these limits are what keeps a burst of requests from overwhelming the embedding API,
+ * the vector store or the chat model. Callers wait up to the acquire timeout for a permit.
+ */
+@Service
+public class DownstreamLimiter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(DownstreamLimiter.class);
+    
+    public enum Downstream {
+        EMBEDDING, VECTOR_STORE, CHAT, EXTERNAL_LLM
+    }
+    
+    @Value("${app.downstream.embedding.max-concurrent:32}")
+    private int embeddingMaxConcurrent;
+    
+    @Value("${app.downstream.vector-store.max-concurrent:64}")
+    private int vectorStoreMaxConcurrent;
+    
+    @Value("${app.downstream.chat.max-concurrent:32}")
+    private int chatMaxConcurrent;
+    
+    @Value("${app.downstream.external-llm.max-concurrent:32}")
+    private int externalLlmMaxConcurrent;
+    
+    @Value("${app.downstream.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+    
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    
+    private final Map<Downstream, Integer> limits = new EnumMap<>(Downstream.class);
+    
+    @PostConstruct
+    void initialize() {
+        limits.put(Downstream.EMBEDDING, embeddingMaxConcurrent);
+        limits.put(Downstream.VECTOR_STORE, vectorStoreMaxConcurrent);
+        limits.put(Downstream.CHAT, chatMaxConcurrent);
+        limits.put(Downstream.EXTERNAL_LLM, externalLlmMaxConcurrent);
+        // A limit of zero or less leaves that downstream unlimited
+        limits.forEach((downstream, limit) -> {
+            if (limit > 0) {
+                permits.put(downstream, new Semaphore(limit, true));
+            }
+        });
+        logger.info("Downstream concurrency limits: {}", limits);
+    }
+    
+    public <T> T call(Downstream downstream, Supplier<T> action) {
+        Permit permit = acquire(downstream);
+        try {
+            return action.get();
+        } finally {
+            permit.close();
+        }
+    }
+    
+    /**
+     * Takes a permit that the caller releases by closing it, for calls whose lifetime is not a
+     * single method call such as a streamed response.
+     */
+    public Permit acquire(Downstream downstream) {
+        Semaphore semaphore = permits.get(downstream);
+        if (semaphore == null) {
+            return new Permit(null);
+        }
+        
+        try {
+            if (!semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new DownstreamBusyException(downstream, acquireTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamBusyException(downstream, acquireTimeoutMs);
+        }
+        return new Permit(semaphore);
+    }
+    
+    public void run(Downstream downstream, Runnable action) {
+        call(downstream, () -> {
+            action.run();
+            return null;
+        });
+    }
+    
+    public int inFlight(Downstream downstream) {
+        Semaphore semaphore = permits.get(downstream);
+        return semaphore == null ? 0 : limits.get(downstream) - semaphore.availablePermits();
+    }
+    
+    public int limit(Downstream downstream) {
+        return limits.getOrDefault(downstream, 0);
+    }
+    
+    public static final class Permit implements AutoCloseable {
+        
+        private final AtomicReference<Semaphore> semaphore;
+        
+        private Permit(Semaphore semaphore) {
+            this.semaphore = new AtomicReference<>(semaphore);
+        }
+        
+        @Override
+        public void close() {
+            Semaphore held = semaphore.getAndSet(null);
+            if (held != null) {
+                held.release();
+            }
+        }
+    }
+}
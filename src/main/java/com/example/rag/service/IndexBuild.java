@@ -0,0 +1,208 @@
+package com.example.rag.service;
+
+import com.example.rag.vectorstore.VersionedRedisVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The index a load of one CSV file writes to. Stores without versions are updated in
+ * place, so searches see a load's changes as they happen. A {@link VersionedRedisVectorStore}
+ * is instead rebuilt into a new version while the live one keeps serving, and searches move
+ * to the new version in one step once it holds exactly the loaded documents plus those of
+ * the other files. Documents loaded from other files are never changed or removed.
+ */
+abstract class IndexBuild {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndexBuild.class);
+    
+    static IndexBuild of(VectorStore vectorStore, IngestionManifestService manifest, String source, boolean reuseEmbeddings) {
+        return vectorStore instanceof VersionedRedisVectorStore versioned
+                ? new Shadow(versioned, manifest, source, reuseEmbeddings)
+                : new InPlace(vectorStore, manifest, source);
+    }
+    
+    /**
+     * Documents of the loaded file the finished index will hold without being stored again;
+     * the load skips them.
+     */
+    abstract Set<String> indexedIds();
+    
+    /**
+     * Embeds and stores a batch. Called concurrently for different batches.
+     */
+    abstract void store(List<Document> batch);
+    
+    /**
+     * Makes the index hold exactly {@code loadedIds} of the loaded file and returns how many
+     * documents previously loaded from it are gone.
+     */
+    abstract int complete(Set<String> loadedIds);
+    
+    private static class InPlace extends IndexBuild {
+        
+        private final VectorStore vectorStore;
+        
+        private final IngestionManifestService manifest;
+        
+        private final String source;
+        
+        private final Set<String> indexedIds;
+        
+        InPlace(VectorStore vectorStore, IngestionManifestService manifest, String source) {
+            this.vectorStore = vectorStore;
+            this.manifest = manifest;
+            this.source = source;
+            this.indexedIds = manifest.indexedIds(source);
+        }
+        
+        @Override
+        Set<String> indexedIds() {
+            return indexedIds;
+        }
+        
+        @Override
+        void store(List<Document> batch) {
+            vectorStore.add(batch);
+            manifest.markIndexed(source, batch.stream().map(Document::getId).toList());
+        }
+        
+        @Override
+        int complete(Set<String> loadedIds) {
+            // Rows of this file that were indexed before but are no longer in it have been removed or changed
+            List<String> staleIds = indexedIds.stream()
+                    .filter(id -> !loadedIds.contains(id))
+                    .toList();
+            if (!staleIds.isEmpty()) {
+                vectorStore.delete(staleIds);
+                manifest.remove(staleIds);
+            }
+            return staleIds.size();
+        }
+    }
+    
+    /**
+     * Fills a new version next to the live one. Documents of the loaded file that the live
+     * version already holds are copied over with their embeddings rather than embedded
+     * again, unless {@code reuseEmbeddings} is off, and documents of other files are always
+     * copied; when the load changes nothing, no version is built. A build that is cancelled
+     * or fails stays in Redis and is continued by the next load, which only stores what it
+     * is still missing.
+     */
+    private static class Shadow extends IndexBuild {
+        
+        private final VersionedRedisVectorStore store;
+        
+        private final IngestionManifestService manifest;
+        
+        private final String source;
+        
+        private final boolean reuseEmbeddings;
+        
+        private final int liveVersion;
+        
+        // Live documents of the loaded file, and of every other file
+        private final Set<String> liveIds;
+        
+        private final Map<String, String> otherSources;
+        
+        private final Set<String> builtIds;
+        
+        private final Set<String> indexedIds;
+        
+        private volatile int version = -1;
+        
+        Shadow(VersionedRedisVectorStore store, IngestionManifestService manifest, String source, boolean reuseEmbeddings) {
+            this.store = store;
+            this.manifest = manifest;
+            this.source = source;
+            this.reuseEmbeddings = reuseEmbeddings;
+            this.liveVersion = store.liveVersion();
+            Map<String, String> liveSources = manifest.indexedSources(liveVersion);
+            this.liveIds = IngestionManifestService.idsOf(liveSources, source);
+            this.otherSources = new HashMap<>(liveSources);
+            otherSources.keySet().removeAll(liveIds);
+            this.builtIds = store.buildingVersion().isPresent() ? manifest.indexedSources(version()).keySet() : Set.of();
+            this.indexedIds = new HashSet<>(builtIds);
+            if (reuseEmbeddings) {
+                indexedIds.addAll(liveIds);
+            }
+        }
+        
+        @Override
+        Set<String> indexedIds() {
+            return indexedIds;
+        }
+        
+        @Override
+        void store(List<Document> batch) {
+            int target = version();
+            store.version(target).add(batch);
+            manifest.markIndexed(target, source, batch.stream().map(Document::getId).toList());
+        }
+        
+        @Override
+        int complete(Set<String> loadedIds) {
+            if (version < 0 && reuseEmbeddings && liveIds.equals(loadedIds)) {
+                logger.info("{} already holds the loaded documents", store.indexName(liveVersion));
+                return 0;
+            }
+            int target = version();
+            
+            Map<String, String> copied = new HashMap<>();
+            if (reuseEmbeddings) {
+                loadedIds.stream()
+                        .filter(id -> liveIds.contains(id) && !builtIds.contains(id))
+                        .forEach(id -> copied.put(id, source));
+            }
+            otherSources.forEach((id, otherSource) -> {
+                if (!builtIds.contains(id)) {
+                    copied.put(id, otherSource);
+                }
+            });
+            if (!copied.isEmpty()) {
+                store.copy(liveVersion, target, copied.keySet());
+                manifest.markIndexed(target, copied);
+            }
+            
+            // Stored by an interrupted build but part of neither this load nor another file
+            List<String> extra = builtIds.stream()
+                    .filter(id -> !loadedIds.contains(id) && !otherSources.containsKey(id))
+                    .toList();
+            if (!extra.isEmpty()) {
+                store.version(target).delete(extra);
+                manifest.remove(target, extra);
+            }
+            
+            long count = store.documentCount(target);
+            int expected = loadedIds.size() + otherSources.size();
+            if (count != expected) {
+                throw new RuntimeException("Index " + store.indexName(target) + " holds " + count + " of "
+                        + expected + " documents; " + store.indexName(liveVersion) + " stays live");
+            }
+            
+            store.switchTo(target);
+            store.drop(liveVersion);
+            manifest.drop(liveVersion);
+            logger.info("Switched to {} with {} documents, {} of them copied from {}",
+                    store.indexName(target), count, copied.size(), store.indexName(liveVersion));
+            
+            return (int) liveIds.stream().filter(id -> !loadedIds.contains(id)).count();
+        }
+        
+        // The new version is only allocated once something needs to be written to it
+        private synchronized int version() {
+            if (version < 0) {
+                version = store.startBuild();
+            }
+            return version;
+        }
+    }
+}
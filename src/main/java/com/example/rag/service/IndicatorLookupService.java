@@ -0,0 +1,172 @@
+package com.example.rag.service;
+
+import com.example.rag.model.MacroeconomicIndicator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Typed in-memory index of the loaded rows keyed by indicator and fiscal year. Prompts
+ * that are plain lookups ("What were Revenues in 2007/08?") are answered straight from
+ * it, without embedding the query, searching or calling the chat model. Like the lexical
+ * index it is rebuilt by every load and from the rows in the vector store on startup.
+ */
+@Service
+public class IndicatorLookupService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IndicatorLookupService.class);
+    
+    // 2007/08, 2007-08, 2007/2008 and 2007 - 08 all name the 2007/08 fiscal year
+    private static final Pattern FISCAL_YEAR = Pattern.compile("\\b(\\d{4})\\s*[/-]\\s*(\\d{4}|\\d{2})\\b");
+    
+    // Prompts asking for comparison or reasoning still go through the full RAG path. Stems catch
+    // inflections such as "compared" or "growing"; a bare "change" is left out as it names the
+    // "Annual % Change" units.
+    private static final Pattern ANALYTICAL = Pattern.compile(
+            "\\b(why|explain\\w*|compar\\w*|trend\\w*|versus|vs|differ\\w*|between|impact\\w*|analy\\w*|grow\\w*|grew"
+                    + "|chang(ed|es|ing)|change (from|between|over|since)|increas\\w*|decreas\\w*|declin\\w*|over time)\\b");
+    
+    @Value("${app.fast-path.enabled:true}")
+    private boolean enabled;
+    
+    private volatile Index index = new Builder().build();
+    
+    public Builder newBuilder() {
+        return new Builder();
+    }
+    
+    public void replace(Index newIndex) {
+        index = newIndex;
+        logger.info("Indicator lookup index now holds {} indicators", newIndex.indicatorNames.size());
+    }
+    
+    public List<MacroeconomicIndicator> lookup(String indicator, String year) {
+        return index.rows.getOrDefault(new IndicatorYear(normalizeIndicator(indicator), normalizeYear(year)), List.of());
+    }
+    
+    /**
+     * Answers the prompt from the index when it asks for exactly one indicator in exactly
+     * one fiscal year and the index has that value; otherwise returns empty.
+     */
+    public Optional<String> answer(String prompt) {
+        if (!enabled || prompt == null) {
+            return Optional.empty();
+        }
+        
+        Index current = index;
+        String normalizedPrompt = " " + normalizeIndicator(prompt) + " ";
+        if (current.indicatorNames.isEmpty() || ANALYTICAL.matcher(normalizedPrompt).find()) {
+            return Optional.empty();
+        }
+        
+        Set<String> years = new LinkedHashSet<>();
+        Matcher yearMatcher = FISCAL_YEAR.matcher(prompt);
+        while (yearMatcher.find()) {
+            years.add(normalizeYear(yearMatcher.group()));
+        }
+        if (years.size() != 1) {
+            return Optional.empty();
+        }
+        
+        Optional<String> indicator = matchSingleIndicator(current, normalizedPrompt);
+        if (indicator.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        List<MacroeconomicIndicator> rows = current.rows.get(new IndicatorYear(indicator.get(), years.iterator().next()));
+        if (rows == null) {
+            return Optional.empty();
+        }
+        
+        logger.debug("Answering '{}' from the indicator lookup index", prompt);
+        return Optional.of(rows.stream()
+                .map(row -> String.format("In %s, %s was %s %s.",
+                        row.getYear(), collapseWhitespace(row.getIndicators()), row.getValue(), collapseWhitespace(row.getUnits())))
+                .collect(Collectors.joining(" ")));
+    }
+    
+    private Optional<String> matchSingleIndicator(Index current, String normalizedPrompt) {
+        // Names are sorted longest first, so "tax revenue/gdp" wins over "revenue/gdp"
+        for (String name : current.indicatorNames) {
+            String padded = " " + name + " ";
+            int position = normalizedPrompt.indexOf(padded);
+            if (position < 0) {
+                continue;
+            }
+            String remainder = normalizedPrompt.substring(0, position) + " " + normalizedPrompt.substring(position + padded.length());
+            boolean another = current.indicatorNames.stream().anyMatch(other -> (" " + remainder + " ").contains(" " + other + " "));
+            return another ? Optional.empty() : Optional.of(name);
+        }
+        return Optional.empty();
+    }
+    
+    static String normalizeIndicator(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}/%]+", " ").trim();
+    }
+    
+    static String normalizeYear(String year) {
+        if (year == null) {
+            return "";
+        }
+        Matcher matcher = FISCAL_YEAR.matcher(year);
+        if (!matcher.find()) {
+            return year.trim();
+        }
+        String end = matcher.group(2);
+        return matcher.group(1) + "/" + end.substring(end.length() - 2);
+    }
+    
+    private static String collapseWhitespace(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+    
+    /**
+     * Accumulates rows for a new index; not thread-safe.
+     */
+    public static class Builder {
+        
+        private final Map<IndicatorYear, Map<String, MacroeconomicIndicator>> rows = new LinkedHashMap<>();
+        
+        public void add(MacroeconomicIndicator indicator) {
+            IndicatorYear key = new IndicatorYear(normalizeIndicator(indicator.getIndicators()), normalizeYear(indicator.getYear()));
+            rows.computeIfAbsent(key, k -> new LinkedHashMap<>()).putIfAbsent(indicator.contentId(), indicator);
+        }
+        
+        public Index build() {
+            Map<IndicatorYear, List<MacroeconomicIndicator>> frozen = new HashMap<>(rows.size() * 2);
+            rows.forEach((key, values) -> frozen.put(key, List.copyOf(values.values())));
+            List<String> names = new ArrayList<>(rows.keySet().stream().map(IndicatorYear::indicator).distinct().toList());
+            names.sort(Comparator.comparingInt(String::length).reversed());
+            return new Index(frozen, List.copyOf(names));
+        }
+    }
+    
+    public static final class Index {
+        
+        private final Map<IndicatorYear, List<MacroeconomicIndicator>> rows;
+        
+        private final List<String> indicatorNames;
+        
+        private Index(Map<IndicatorYear, List<MacroeconomicIndicator>> rows, List<String> indicatorNames) {
+            this.rows = rows;
+            this.indicatorNames = indicatorNames;
+        }
+    }
+    
+    private record IndicatorYear(String indicator, String year) {}
+}
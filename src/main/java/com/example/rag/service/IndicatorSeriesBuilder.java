@@ -0,0 +1,112 @@
+package com.example.rag.service;
+
+import com.example.rag.model.MacroeconomicIndicator;
+import org.springframework.ai.document.Document;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Accumulates rows during ingestion and turns every indicator/units series covering two
+ * or more years into one summary document, listing each year's value and the change from
+ * the year before. Not thread-safe.
+ */
+class IndicatorSeriesBuilder {
+    
+    private static final Comparator<SeriesKey> ORDER = Comparator.comparing(SeriesKey::indicator)
+            .thenComparing(SeriesKey::units);
+    
+    private final Map<SeriesKey, TreeMap<String, String>> series = new TreeMap<>(ORDER);
+    
+    private final String source;
+    
+    IndicatorSeriesBuilder(String source) {
+        this.source = source;
+    }
+    
+    void add(MacroeconomicIndicator indicator) {
+        if (indicator.getYear() == null) {
+            return;
+        }
+        SeriesKey key = new SeriesKey(clean(indicator.getIndicators()), clean(indicator.getUnits()));
+        series.computeIfAbsent(key, k -> new TreeMap<>()).putIfAbsent(indicator.getYear().trim(), indicator.getValue().trim());
+    }
+    
+    List<Document> build() {
+        List<Document> documents = new ArrayList<>();
+        series.forEach((key, values) -> {
+            if (values.size() > 1) {
+                documents.add(toDocument(key, values));
+            }
+        });
+        return documents;
+    }
+    
+    private Document toDocument(SeriesKey key, TreeMap<String, String> values) {
+        String firstYear = values.firstKey();
+        String lastYear = values.lastKey();
+        
+        StringBuilder text = new StringBuilder();
+        text.append(key.indicator());
+        if (!key.units().isEmpty()) {
+            text.append(" (").append(key.units()).append(')');
+        }
+        text.append(", ").append(firstYear).append(" to ").append(lastYear).append(':');
+        
+        String separator = " ";
+        BigDecimal previous = null;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            BigDecimal current = number(entry.getValue());
+            text.append(separator).append(entry.getKey()).append(' ').append(entry.getValue());
+            if (previous != null && current != null) {
+                text.append(" (").append(signed(current.subtract(previous))).append(')');
+            }
+            previous = current;
+            separator = "; ";
+        }
+        
+        BigDecimal first = number(values.get(firstYear));
+        BigDecimal last = number(values.get(lastYear));
+        if (first != null && last != null) {
+            text.append(". Overall change from ").append(firstYear).append(" to ").append(lastYear)
+                    .append(": ").append(signed(last.subtract(first)));
+        }
+        text.append('.');
+        
+        String content = text.toString();
+        return Document.builder()
+                .id(UUID.nameUUIDFromBytes(("series\u001F" + source + '\u001F' + content).getBytes(StandardCharsets.UTF_8)).toString())
+                .text(content)
+                .metadata(Map.of(
+                        VectorStoreService.LEVEL, VectorStoreService.SERIES_LEVEL,
+                        "indicator", key.indicator(),
+                        "units", key.units(),
+                        "years", firstYear + "-" + lastYear,
+                        "source", source))
+                .build();
+    }
+    
+    private static BigDecimal number(String value) {
+        try {
+            return new BigDecimal(value.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String signed(BigDecimal value) {
+        return (value.signum() > 0 ? "+" : "") + value.toPlainString();
+    }
+    
+    private static String clean(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+    
+    private record SeriesKey(String indicator, String units) {}
+}
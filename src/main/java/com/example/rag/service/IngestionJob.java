@@ -0,0 +1,203 @@
+package com.example.rag.service;
+
+import com.example.rag.model.IngestionJobStatus;
+import com.example.rag.model.IngestionJobStatus.Progress;
+import com.example.rag.model.IngestionJobStatus.State;
+import com.example.rag.model.IngestionResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * One background load of a CSV file. Counts progress as the load reports it and saves a
+ * checkpoint through {@code checkpoint} after every stored or failed batch.
+ */
+class IngestionJob implements IngestionListener {
+    
+    private final String id;
+    
+    private final String file;
+    
+    private final boolean resumed;
+    
+    private final Instant submittedAt;
+    
+    private final Consumer<IngestionJob> checkpoint;
+    
+    private final LongAdder bytesRead = new LongAdder();
+    
+    private final LongAdder rowsParsed = new LongAdder();
+    
+    private final LongAdder documentsUnchanged = new LongAdder();
+    
+    private final LongAdder documentsStored = new LongAdder();
+    
+    private final LongAdder documentsFailed = new LongAdder();
+    
+    private final LongAdder batchesStored = new LongAdder();
+    
+    private final LongAdder batchesFailed = new LongAdder();
+    
+    private volatile State state = State.QUEUED;
+    
+    private volatile boolean cancelRequested;
+    
+    private volatile boolean stopped;
+    
+    private volatile long totalBytes = -1;
+    
+    private volatile Instant startedAt;
+    
+    private volatile Instant finishedAt;
+    
+    private volatile String message;
+    
+    private volatile IngestionResult result;
+    
+    IngestionJob(String id, String file, boolean resumed, Instant submittedAt, Consumer<IngestionJob> checkpoint) {
+        this.id = id;
+        this.file = file;
+        this.resumed = resumed;
+        this.submittedAt = submittedAt;
+        this.checkpoint = checkpoint;
+    }
+    
+    String id() {
+        return id;
+    }
+    
+    String file() {
+        return file;
+    }
+    
+    /**
+     * Moves a queued job to running; returns false if it was cancelled while queued.
+     */
+    synchronized boolean start(long totalBytes) {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        this.totalBytes = totalBytes;
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        return true;
+    }
+    
+    synchronized void succeed(IngestionResult result) {
+        this.result = result;
+        finish(State.SUCCEEDED, result.isPartial() ? result.failedBatches() + " batches failed" : null);
+    }
+    
+    synchronized void fail(String message) {
+        finish(State.FAILED, message);
+    }
+    
+    /**
+     * Asks the job to stop. A queued job is cancelled at once; a running job stops
+     * submitting batches and is cancelled when the batches in flight are done.
+     */
+    synchronized void cancel() {
+        if (state.isFinished()) {
+            return;
+        }
+        cancelRequested = true;
+        if (state == State.QUEUED) {
+            finish(State.CANCELLED, "Cancelled before it started");
+        }
+    }
+    
+    /**
+     * Stops a running job without marking it cancelled, so that it is resumed on the next
+     * start or carried on by the instance that took it over.
+     */
+    void stop() {
+        stopped = true;
+        cancelRequested = true;
+    }
+    
+    boolean isStopped() {
+        return stopped;
+    }
+    
+    synchronized void cancelled(String message) {
+        finish(State.CANCELLED, message);
+    }
+    
+    private void finish(State finalState, String finalMessage) {
+        state = finalState;
+        message = finalMessage;
+        finishedAt = Instant.now();
+    }
+    
+    State state() {
+        return state;
+    }
+    
+    Instant finishedAt() {
+        return finishedAt;
+    }
+    
+    @Override
+    public void bytesRead(long count) {
+        bytesRead.add(count);
+    }
+    
+    @Override
+    public void rowParsed() {
+        rowsParsed.increment();
+    }
+    
+    @Override
+    public void documentUnchanged() {
+        documentsUnchanged.increment();
+    }
+    
+    @Override
+    public void batchStored(int documents) {
+        documentsStored.add(documents);
+        batchesStored.increment();
+        checkpoint.accept(this);
+    }
+    
+    @Override
+    public void batchFailed(int documents) {
+        documentsFailed.add(documents);
+        batchesFailed.increment();
+        checkpoint.accept(this);
+    }
+    
+    @Override
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+    
+    IngestionJobStatus status() {
+        return new IngestionJobStatus(id, file, state, message, resumed, submittedAt, startedAt, finishedAt, progress(), result);
+    }
+    
+    private Progress progress() {
+        long read = bytesRead.sum();
+        long stored = documentsStored.sum();
+        long failed = documentsFailed.sum();
+        
+        double seconds = startedAt == null ? 0
+                : Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis() / 1000.0;
+        double documentsPerSecond = seconds > 0 ? Math.round((stored + failed) / seconds * 10) / 10.0 : 0;
+        
+        // Reading runs at most a few batches ahead of storing, so the share of the file read tracks overall progress
+        Double percent = null;
+        Long etaSeconds = null;
+        if (totalBytes > 0) {
+            double fraction = Math.min(1.0, (double) read / totalBytes);
+            percent = state == State.SUCCEEDED ? 100.0 : Math.round(fraction * 1000) / 10.0;
+            if (state == State.RUNNING && fraction > 0) {
+                etaSeconds = Math.round(seconds * (1 - fraction) / fraction);
+            }
+        }
+        
+        return new Progress(rowsParsed.sum(), documentsUnchanged.sum(), stored, failed,
+                batchesStored.sum(), batchesFailed.sum(), read, totalBytes, documentsPerSecond, percent, etaSeconds);
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.rag.service;
+
+import com.example.rag.model.IngestionJobStatus;
+import com.example.rag.vectorstore.LocalVectorStore;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs CSV loads as background jobs, one at a time in submission order. With the Redis
+ * store every job's status is saved in Redis after each batch; jobs that were queued or
+ * running when the application stopped are resumed on the next start, and since each
+ * stored batch is already in the ingestion manifest a resumed job only embeds the rows
+ * after the last stored batch. The in-process stores keep job statuses in memory only.
+ * <p>
+ * With several instances on one Redis, a job is owned by the instance that holds its
+ * claim, {@code <jobsKey>:<id>:owner}. The claim expires unless the owner renews it at
+ * every checkpoint, so a starting instance only resumes jobs whose owner is gone.
+ * Cancelling a job owned by another instance sets {@code <jobsKey>:<id>:cancel}, which
+ * the owner checks at its next checkpoint.
+ */
+@Service
+public class IngestionJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobService.class);
+    
+    // Extends or releases a claim only while this instance still holds it
+    private static final String RENEW_CLAIM =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) end return 0";
+    
+    private static final String RELEASE_CLAIM =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0";
+    
+    @Autowired
+    private VectorStoreService vectorStoreService;
+    
+    @Autowired
+    private CsvProcessingService csvProcessingService;
+    
+    @Autowired
+    private VectorStore vectorStore;
+    
+    @Autowired
+    private JedisPooled jedis;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.ingestion.default-file:macroeconimic-indicator-2007-2017-by-monetary-sector.csv}")
+    private String defaultFile;
+    
+    @Value("${app.ingestion.jobs.key:rag:ingestion:jobs}")
+    private String jobsKey;
+    
+    @Value("${app.ingestion.jobs.retention-hours:168}")
+    private long retentionHours;
+    
+    @Value("${app.ingestion.jobs.claim-ttl-ms:60000}")
+    private long claimTtlMs;
+    
+    private final String instanceId = UUID.randomUUID().toString();
+    
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("ingestion-job").factory());
+    
+    /**
+     * Queues a load of the given file, or of the default file when {@code file} is null.
+     * A load only replaces the documents of its own file. If a load of the same file is
+     * already queued or running, that job is returned instead.
+     */
+    public synchronized IngestionJobStatus submit(String file) {
+        String csvFile = file != null ? file : defaultFile;
+        Optional<IngestionJob> active = activeJob(csvFile);
+        if (active.isPresent()) {
+            logger.info("Load of {} is already {} as job {}", csvFile, active.get().state(), active.get().id());
+            return active.get().status();
+        }
+        
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), csvFile, false, Instant.now(), this::save);
+        enqueue(job);
+        logger.info("Queued load of {} as job {}", csvFile, job.id());
+        return job.status();
+    }
+    
+    public Optional<IngestionJobStatus> find(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        return job != null ? Optional.of(job.status()) : load(jobId);
+    }
+    
+    public List<IngestionJobStatus> list() {
+        return jobs.values().stream()
+                .map(IngestionJob::status)
+                .sorted(Comparator.comparing(IngestionJobStatus::submittedAt).reversed())
+                .toList();
+    }
+    
+    /**
+     * Requests cancellation and returns the job's status, which stays {@code running} until
+     * the batches in flight are done. A job another instance runs is cancelled by that
+     * instance at its next checkpoint. Returns empty for unknown jobs.
+     */
+    public Optional<IngestionJobStatus> cancel(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            Optional<IngestionJobStatus> status = load(jobId);
+            if (status.isPresent() && !status.get().status().isFinished()) {
+                jedis.set(cancelKey(jobId), instanceId, SetParams.setParams().ex(retentionHours * 3600));
+                logger.info("Cancellation requested for job {}, which another instance runs", jobId);
+            }
+            return status;
+        }
+        
+        job.cancel();
+        save(job);
+        logger.info("Cancellation requested for job {}", jobId);
+        return Optional.of(job.status());
+    }
+    
+    /**
+     * Re-queues the jobs that were queued or running when the application last stopped,
+     * leaving those whose claim another live instance still holds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        if (isLocal()) {
+            return;
+        }
+        
+        List<IngestionJobStatus> unfinished = new ArrayList<>();
+        try {
+            for (String jobId : jedis.smembers(jobsKey)) {
+                Optional<IngestionJobStatus> status = load(jobId);
+                if (status.isEmpty()) {
+                    jedis.srem(jobsKey, jobId);
+                } else if (!status.get().status().isFinished() && !jobs.containsKey(jobId)) {
+                    unfinished.add(status.get());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not look for unfinished ingestion jobs: {}", e.getMessage());
+            return;
+        }
+        
+        unfinished.sort(Comparator.comparing(IngestionJobStatus::submittedAt));
+        for (IngestionJobStatus status : unfinished) {
+            synchronized (this) {
+                IngestionJob job = new IngestionJob(status.jobId(), status.file(), true, status.submittedAt(), this::save);
+                Optional<IngestionJob> active = activeJob(status.file());
+                if (!claim(job.id())) {
+                    logger.info("Job {} is run by another instance", job.id());
+                } else if (active.isPresent()) {
+                    // A load of the same file was submitted since, e.g. on startup
+                    job.cancelled("Superseded by job " + active.get().id());
+                    jobs.put(job.id(), job);
+                    save(job);
+                } else {
+                    enqueue(job);
+                    logger.info("Resuming load of {} as job {}", status.file(), job.id());
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Running jobs stop after their batches in flight and stay "running" in Redis, to be resumed on the next start
+        jobs.values().forEach(IngestionJob::stop);
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private Optional<IngestionJob> activeJob(String file) {
+        return jobs.values().stream()
+                .filter(job -> job.file().equals(file) && !job.state().isFinished())
+                .findFirst();
+    }
+    
+    private void enqueue(IngestionJob job) {
+        Instant expired = Instant.now().minus(Duration.ofHours(retentionHours));
+        jobs.values().removeIf(old -> old.finishedAt() != null && old.finishedAt().isBefore(expired));
+        jobs.put(job.id(), job);
+        save(job);
+        executor.submit(() -> run(job));
+    }
+    
+    private void run(IngestionJob job) {
+        if (!job.start(csvProcessingService.sizeOf(job.file()))) {
+            return;
+        }
+        save(job);
+        if (job.isStopped()) {
+            releaseClaim(job.id());
+            return;
+        }
+        
+        try {
+            job.succeed(vectorStoreService.loadAndStoreDocuments(job.file(), job));
+            logger.info("Job {} finished loading {}", job.id(), job.file());
+        } catch (CancellationException e) {
+            if (job.isStopped()) {
+                logger.info("Job {} stopped before finishing; it resumes on the next start or elsewhere", job.id());
+                releaseClaim(job.id());
+                return;
+            }
+            job.cancelled(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Job {} failed to load {}: {}", job.id(), job.file(), e.getMessage(), e);
+            job.fail(e.getMessage());
+        }
+        save(job);
+    }
+    
+    private void save(IngestionJob job) {
+        if (isLocal()) {
+            return;
+        }
+        
+        try {
+            if (!job.state().isFinished()) {
+                if (!claim(job.id())) {
+                    // Our claim lapsed and another instance resumed the job; its checkpoints are the ones that count
+                    logger.warn("Job {} was taken over by another instance; stopping it here", job.id());
+                    job.stop();
+                    jobs.remove(job.id());
+                    return;
+                }
+                if (jedis.exists(cancelKey(job.id()))) {
+                    job.cancel();
+                }
+            }
+            
+            IngestionJobStatus status = job.status();
+            String key = jobKey(job.id());
+            jedis.set(key, objectMapper.writeValueAsString(status));
+            if (status.status().isFinished()) {
+                jedis.expire(key, retentionHours * 3600);
+                jedis.srem(jobsKey, job.id());
+                jedis.del(cancelKey(job.id()));
+                releaseClaim(job.id());
+            } else {
+                jedis.sadd(jobsKey, job.id());
+            }
+        } catch (Exception e) {
+            // Losing a checkpoint only costs progress details; the manifest still records every stored batch
+            logger.warn("Could not save status of job {}: {}", job.id(), e.getMessage());
+        }
+    }
+    
+    private Optional<IngestionJobStatus> load(String jobId) {
+        if (isLocal()) {
+            return Optional.empty();
+        }
+        
+        String json = jedis.get(jobKey(jobId));
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readerFor(IngestionJobStatus.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(json));
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable status of job {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Takes or renews this instance's claim on a job; returns false if another instance holds it.
+     */
+    private boolean claim(String jobId) {
+        if (isLocal()) {
+            return true;
+        }
+        String key = ownerKey(jobId);
+        Object renewed = jedis.eval(RENEW_CLAIM, List.of(key), List.of(instanceId, String.valueOf(claimTtlMs)));
+        return Long.valueOf(1).equals(renewed)
+                || "OK".equals(jedis.set(key, instanceId, SetParams.setParams().nx().px(claimTtlMs)));
+    }
+    
+    private void releaseClaim(String jobId) {
+        if (isLocal()) {
+            return;
+        }
+        try {
+            jedis.eval(RELEASE_CLAIM, List.of(ownerKey(jobId)), List.of(instanceId));
+        } catch (Exception e) {
+            // The claim expires on its own
+            logger.debug("Could not release the claim on job {}: {}", jobId, e.getMessage());
+        }
+    }
+    
+    private String jobKey(String jobId) {
+        return jobsKey + ":" + jobId;
+    }
+    
+    private String ownerKey(String jobId) {
+        return jobKey(jobId) + ":owner";
+    }
+    
+    private String cancelKey(String jobId) {
+        return jobKey(jobId) + ":cancel";
+    }
+    
+    private boolean isLocal() {
+        return vectorStore instanceof LocalVectorStore;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.rag.service;
+
+/**
+ * Receives progress from {@link VectorStoreService#loadAndStoreDocuments(String, IngestionListener)}
+ * and can ask it to stop. Callbacks for stored or failed batches arrive on the batch
+ * threads, so implementations must be thread-safe.
+ */
+public interface IngestionListener {
+    
+    IngestionListener NONE = new IngestionListener() {};
+    
+    default void bytesRead(long count) {}
+    
+    default void rowParsed() {}
+    
+    default void documentUnchanged() {}
+    
+    default void batchStored(int documents) {}
+    
+    default void batchFailed(int documents) {}
+    
+    /**
+     * Checked before each batch is submitted; once true no further batches are started,
+     * the batches already in flight finish, and the load ends with a
+     * {@link java.util.concurrent.CancellationException}.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
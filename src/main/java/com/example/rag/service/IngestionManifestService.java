@@ -0,0 +1,119 @@
+package com.example.rag.service;
+
+import com.example.rag.vectorstore.LocalVectorStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the IDs of the documents that are currently indexed in the vector store, each with
+ * the CSV file it was loaded from, so a reload of one file only embeds its new or changed
+ * rows and only removes rows that disappeared from that file.
+ * The manifest lives next to the index: in Redis for the Redis store, as a hash from
+ * document ID to file, while the in-process stores already know their own documents and
+ * their {@code source} metadata and act as the manifest.
+ * Each version of a versioned Redis index has its own manifest, {@code <manifestKey>:v<n>}.
+ */
+@Service
+public class IngestionManifestService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IngestionManifestService.class);
+    
+    @Autowired
+    private JedisPooled jedis;
+    
+    @Value("${app.ingestion.manifest-key:rag:manifest}")
+    private String manifestKey;
+    
+    @Autowired
+    private VectorStore vectorStore;
+    
+    public Set<String> indexedIds(String source) {
+        Set<String> ids = vectorStore instanceof LocalVectorStore localStore
+                ? localStore.documents().stream()
+                        .filter(document -> source.equals(document.getMetadata().get("source")))
+                        .map(Document::getId)
+                        .collect(Collectors.toSet())
+                : idsOf(jedis.hgetAll(manifestKey), source);
+        logger.info("Manifest {} lists {} indexed documents from {}", manifestKey, ids.size(), source);
+        return ids;
+    }
+    
+    public void markIndexed(String source, Collection<String> ids) {
+        if (!isLocal() && !ids.isEmpty()) {
+            jedis.hset(manifestKey, sourceById(source, ids));
+        }
+    }
+    
+    public void remove(Collection<String> ids) {
+        if (!isLocal() && !ids.isEmpty()) {
+            jedis.hdel(manifestKey, ids.toArray(String[]::new));
+        }
+    }
+    
+    /**
+     * The documents a version holds, each mapped to the file it was loaded from.
+     */
+    public Map<String, String> indexedSources(int version) {
+        Map<String, String> sources = jedis.hgetAll(versionKey(version));
+        logger.info("Manifest {} lists {} indexed documents", versionKey(version), sources.size());
+        return sources;
+    }
+    
+    public void markIndexed(int version, String source, Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            jedis.hset(versionKey(version), sourceById(source, ids));
+        }
+    }
+    
+    public void markIndexed(int version, Map<String, String> sourceById) {
+        if (!sourceById.isEmpty()) {
+            jedis.hset(versionKey(version), sourceById);
+        }
+    }
+    
+    public void remove(int version, Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            jedis.hdel(versionKey(version), ids.toArray(String[]::new));
+        }
+    }
+    
+    public void drop(int version) {
+        jedis.del(versionKey(version));
+    }
+    
+    /**
+     * The IDs in a manifest that were loaded from {@code source}.
+     */
+    static Set<String> idsOf(Map<String, String> sourceById, String source) {
+        return sourceById.entrySet().stream()
+                .filter(entry -> source.equals(entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+    
+    private static Map<String, String> sourceById(String source, Collection<String> ids) {
+        Map<String, String> sourceById = new HashMap<>();
+        ids.forEach(id -> sourceById.put(id, source));
+        return sourceById;
+    }
+    
+    private String versionKey(int version) {
+        return manifestKey + ":v" + version;
+    }
+    
+    private boolean isLocal() {
+        return vectorStore instanceof LocalVectorStore;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.rag.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process BM25 inverted index over the ingested documents. It is rebuilt from every
+ * row of the CSV on each load (including rows whose embeddings were unchanged), and from
+ * the rows in the vector store on startup, and swapped in atomically, so searches always
+ * see one complete index.
+ */
+@Service
+public class LexicalIndexService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LexicalIndexService.class);
+    
+    // Keeps fiscal years such as "2007/08" and decimals such as "22.7" as single tokens
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+(?:[/.][\\p{L}\\p{N}]+)*");
+    
+    private static final List<String> INDEXED_METADATA = List.of("indicator", "units", "year");
+    
+    private static final double K1 = 1.2;
+    
+    private static final double B = 0.75;
+    
+    private volatile LexicalIndex index = new Builder().build();
+    
+    public Builder newBuilder() {
+        return new Builder();
+    }
+    
+    /**
+     * Replaces the current index and reports whether the set of indexed documents changed.
+     */
+    public boolean replace(LexicalIndex newIndex) {
+        LexicalIndex previous = index;
+        index = newIndex;
+        logger.info("Lexical index now holds {} documents and {} terms", newIndex.documents.length, newIndex.postings.size());
+        return !previous.documentIds().equals(newIndex.documentIds());
+    }
+    
+    public int size() {
+        return index.documents.length;
+    }
+    
+    /**
+     * Returns up to {@code topK} documents ranked by BM25 score, highest first, with the
+     * score set on each document.
+     */
+    public List<Document> search(String query, int topK) {
+        LexicalIndex current = index;
+        if (current.documents.length == 0 || topK <= 0) {
+            return List.of();
+        }
+        
+        double[] scores = new double[current.documents.length];
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings postings = current.postings.get(term);
+            if (postings == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (current.documents.length - postings.size + 0.5) / (postings.size + 0.5));
+            for (int i = 0; i < postings.size; i++) {
+                int doc = postings.documents[i];
+                int frequency = postings.frequencies[i];
+                double norm = K1 * (1 - B + B * current.lengths[doc] / current.averageLength);
+                scores[doc] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+        
+        PriorityQueue<Integer> best = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(doc -> scores[doc]));
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] <= 0) {
+                continue;
+            }
+            if (best.size() < topK) {
+                best.add(doc);
+            } else if (scores[doc] > scores[best.peek()]) {
+                best.poll();
+                best.add(doc);
+            }
+        }
+        
+        List<Document> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int doc = best.poll();
+            Document document = current.documents[doc];
+            results.add(0, Document.builder()
+                    .id(document.getId())
+                    .text(document.getText())
+                    .metadata(document.getMetadata())
+                    .score(scores[doc])
+                    .build());
+        }
+        return results;
+    }
+    
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+    
+    /**
+     * Accumulates documents for a new index; not thread-safe.
+     */
+    public static class Builder {
+        
+        private final List<Document> documents = new ArrayList<>();
+        
+        private final List<Integer> lengths = new ArrayList<>();
+        
+        private final Map<String, Map<Integer, Integer>> frequencies = new HashMap<>();
+        
+        public void add(Document document) {
+            int doc = documents.size();
+            List<String> tokens = tokenize(document.getText());
+            for (String field : INDEXED_METADATA) {
+                Object value = document.getMetadata().get(field);
+                if (value != null) {
+                    tokens.addAll(tokenize(value.toString()));
+                }
+            }
+            for (String token : tokens) {
+                frequencies.computeIfAbsent(token, key -> new HashMap<>()).merge(doc, 1, Integer::sum);
+            }
+            documents.add(document);
+            lengths.add(tokens.size());
+        }
+        
+        public LexicalIndex build() {
+            Map<String, Postings> postings = new HashMap<>(frequencies.size() * 2);
+            frequencies.forEach((term, byDocument) -> {
+                int[] docs = byDocument.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                int[] counts = new int[docs.length];
+                for (int i = 0; i < docs.length; i++) {
+                    counts[i] = byDocument.get(docs[i]);
+                }
+                postings.put(term, new Postings(docs, counts, docs.length));
+            });
+            int[] documentLengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+            double averageLength = Arrays.stream(documentLengths).average().orElse(0);
+            return new LexicalIndex(documents.toArray(Document[]::new), documentLengths, averageLength, postings);
+        }
+    }
+    
+    public static final class LexicalIndex {
+        
+        private final Document[] documents;
+        
+        private final int[] lengths;
+        
+        private final double averageLength;
+        
+        private final Map<String, Postings> postings;
+        
+        private LexicalIndex(Document[] documents, int[] lengths, double averageLength, Map<String, Postings> postings) {
+            this.documents = documents;
+            this.lengths = lengths;
+            this.averageLength = averageLength;
+            this.postings = postings;
+        }
+        
+        private Set<String> documentIds() {
+            Set<String> ids = new LinkedHashSet<>(documents.length * 2);
+            for (Document document : documents) {
+                ids.add(document.getId());
+            }
+            return ids;
+        }
+    }
+    
+    private record Postings(int[] documents, int[] frequencies, int size) {}
+}
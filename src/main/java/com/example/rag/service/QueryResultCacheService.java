@@ -0,0 +1,203 @@
+package com.example.rag.service;
+
+import com.example.rag.model.IndexChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches search results and generated answers per normalized query and parameters.
+ * Exact matches are served from an LRU map; optionally, a query whose embedding is
+ * close enough to a cached one reuses that entry. Every entry expires after a TTL
+ * and the whole cache is dropped when the index changes. Concurrent misses for the
+ * same key share a single load through the {@link RequestCoalescer}.
+ */
+@Service
+public class QueryResultCacheService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCacheService.class);
+    
+    @Autowired(required = false)
+    private EmbeddingModel embeddingModel;
+    
+    @Autowired
+    private RequestCoalescer requestCoalescer;
+    
+    @Value("${app.result-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.result-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+    
+    @Value("${app.result-cache.max-entries:1000}")
+    private int maxEntries;
+    
+    @Value("${app.result-cache.semantic.enabled:false}")
+    private boolean semanticEnabled;
+    
+    @Value("${app.result-cache.semantic.threshold:0.97}")
+    private double semanticThreshold;
+    
+    private final Map<QueryKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QueryKey, CacheEntry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    
+    // Bumped on every invalidation so results computed against the old index are not stored
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final AtomicLong exactHits = new AtomicLong();
+    
+    private final AtomicLong semanticHits = new AtomicLong();
+    
+    private final AtomicLong misses = new AtomicLong();
+    
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCompute(String namespace, String query, List<Object> parameters, Supplier<T> loader) {
+        QueryKey key = new QueryKey(namespace, normalize(query), parameters);
+        if (!enabled) {
+            return requestCoalescer.execute(key, loader);
+        }
+        
+        long now = System.nanoTime();
+        
+        CacheEntry entry = getLive(key, now);
+        if (entry != null) {
+            exactHits.incrementAndGet();
+            return (T) entry.value();
+        }
+        
+        float[] embedding = null;
+        if (semanticEnabled && embeddingModel != null) {
+            embedding = embeddingModel.embed(key.query());
+            entry = findSimilar(key, embedding, now);
+            if (entry != null) {
+                semanticHits.incrementAndGet();
+                return (T) entry.value();
+            }
+        }
+        
+        misses.incrementAndGet();
+        long startGeneration = generation.get();
+        T value = requestCoalescer.execute(key, loader);
+        
+        synchronized (entries) {
+            if (generation.get() == startGeneration) {
+                entries.put(key, new CacheEntry(value, embedding, now + ttlSeconds * 1_000_000_000L));
+            }
+        }
+        return value;
+    }
+    
+    @EventListener
+    public void onIndexChanged(IndexChangedEvent event) {
+        invalidateAll();
+        logger.info("Query result cache cleared after index change from {}", event.source());
+    }
+    
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+    }
+    
+    public long getExactHits() {
+        return exactHits.get();
+    }
+    
+    public long getSemanticHits() {
+        return semanticHits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    private CacheEntry getLive(QueryKey key, long now) {
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() - now <= 0) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+    
+    private CacheEntry findSimilar(QueryKey key, float[] embedding, long now) {
+        CacheEntry best = null;
+        double bestSimilarity = semanticThreshold;
+        synchronized (entries) {
+            Iterator<Map.Entry<QueryKey, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<QueryKey, CacheEntry> candidate = iterator.next();
+                CacheEntry entry = candidate.getValue();
+                if (entry.expiresAt() - now <= 0) {
+                    iterator.remove();
+                    continue;
+                }
+                if (entry.embedding() == null
+                        || !candidate.getKey().namespace().equals(key.namespace())
+                        || !candidate.getKey().parameters().equals(key.parameters())) {
+                    continue;
+                }
+                double similarity = cosineSimilarity(embedding, entry.embedding());
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best;
+    }
+    
+    private static double cosineSimilarity(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+    
+    private static String normalize(String query) {
+        return query.trim()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[?!.]+$", "");
+    }
+    
+    public record QueryKey(String namespace, String query, List<Object> parameters) {}
+    
+    private record CacheEntry(Object value, float[] embedding, long expiresAt) {}
+}
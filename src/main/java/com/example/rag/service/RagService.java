@@ -1,5 +1,11 @@
 package com.example.rag.service;
 
+import com.example.rag.client.ExternalLlmClient;
+import com.example.rag.client.ExternalLlmRequest;
+import com.example.rag.client.ExternalLlmResponse;
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
+import com.example.rag.service.DownstreamLimiter.Downstream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
@@ -9,21 +15,20 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class RagService {
@@ -31,14 +36,33 @@ public class RagService {
     private static final Logger logger = LoggerFactory.getLogger(RagService.class);
     
     @Autowired
-    private VectorStore vectorStore;
+    private VectorStoreService vectorStoreService;
     
     @Autowired
     private ChatClient chatClient;
     
     @Autowired
-    private RestTemplate restTemplate;
+    private ExternalLlmClient externalLlmClient;
     
+    @Autowired
+    private QueryResultCacheService queryResultCacheService;
+    
+    @Autowired
+    private IndicatorLookupService indicatorLookupService;
+    
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+    
+    @Autowired
+    private ExecutorService outboundExecutor;
+    
+    @Autowired
+    private RagMetrics ragMetrics;
+    
+    @Autowired
+    private ContextBuilder contextBuilder;
+    
+    // Kept free of per-request content so providers can cache it as a shared prompt prefix
     private static final String SYSTEM_PROMPT = """
             You are an AI assistant specialized in analyzing macroeconomic data.
             You will be provided with relevant economic indicators and data points to answer user questions.
@@ -49,47 +73,51 @@ public class RagService {
             3. Provide specific numbers, years, and indicators when available
             4. Format your response in a clear, professional manner
             5. If asked about trends, compare multiple data points from the context
-            
-            Context Information:
-            {context}
             """;
     
+    private static final String NO_RELEVANT_DATA_RESPONSE =
+            "I couldn't find any relevant macroeconomic data for your query. Please try rephrasing your question or check if the data has been loaded.";
+    
     public String generateResponse(String userQuery) {
         logger.info("Processing RAG query: {}", userQuery);
         
+        // Plain indicator/year lookups are answered from the loaded rows without embeddings or the LLM
+        vectorStoreService.syncIndexes();
+        Optional<String> directAnswer = indicatorLookupService.answer(userQuery);
+        if (directAnswer.isPresent()) {
+            logger.info("Answered from the indicator lookup index");
+            return directAnswer.get();
+        }
+        
+        try {
+            return queryResultCacheService.getOrCompute("ask", userQuery, List.of(), () -> answerWithChatModel(userQuery));
+        } catch (ChatCallFailedException e) {
+            return "I encountered an error while processing your request. Please try again later.";
+        }
+    }
+    
+    private String answerWithChatModel(String userQuery) {
         // Step 1: Retrieve relevant documents from vector store
         List<Document> relevantDocs = retrieveRelevantDocuments(userQuery);
         
         if (relevantDocs.isEmpty()) {
             logger.warn("No relevant documents found for query: {}", userQuery);
-            return "I couldn't find any relevant macroeconomic data for your query. Please try rephrasing your question or check if the data has been loaded.";
+            return NO_RELEVANT_DATA_RESPONSE;
         }
         
         logger.info("Found {} relevant documents", relevantDocs.size());
         
-        // Step 2: Prepare context from retrieved documents
-        String context = prepareContext(relevantDocs);
-        logger.debug("Prepared context for OpenAI: {}", context);
-        
-        // Step 3: Create prompt with system message and user query
-        String systemPromptWithContext = SYSTEM_PROMPT.replace("{context}", context);
-        
-        List<Message> messages = List.of(
-            new SystemMessage(systemPromptWithContext),
-            new UserMessage(userQuery)
-        );
-        
-        Prompt prompt = new Prompt(messages);
+        // Steps 2-3: Prepare context and create prompt with system message and user query
+        Prompt prompt = buildPrompt(userQuery, relevantDocs);
         
         // Step 4: Generate response using ChatClient
         try {
             logger.info("Sending request to OpenAI Chat API");
-            logger.debug("OpenAI Request - System Message: {}", systemPromptWithContext);
-            logger.debug("OpenAI Request - User Message: {}", userQuery);
             logger.debug("OpenAI Request - Full Prompt: {}", prompt.toString());
             
             long startTime = System.currentTimeMillis();
-            String generatedResponse = chatClient.prompt(prompt).call().content();
+            String generatedResponse = downstreamLimiter.call(Downstream.CHAT,
+                    () -> ragMetrics.time(Stage.LLM_CALL, () -> chatClient.prompt(prompt).call().content()));
             long endTime = System.currentTimeMillis();
             
             logger.info("OpenAI API call completed in {} ms", endTime - startTime);
@@ -97,30 +125,106 @@ public class RagService {
             logger.info("Successfully generated response");
             return generatedResponse;
             
+        } catch (DownstreamBusyException e) {
+            // Not a chat failure: the caller is told to retry later
+            throw e;
         } catch (Exception e) {
             logger.error("Error generating response from OpenAI: {}", e.getMessage(), e);
-            return "I encountered an error while processing your request. Please try again later.";
+            // Thrown rather than returned so the failure message is never cached
+            throw new ChatCallFailedException(e);
         }
     }
     
-    private List<Document> retrieveRelevantDocuments(String query) {
-        SearchRequest searchRequest = SearchRequest.builder()
-                .query(query)
-                .topK(5)  // Retrieve top 5 most relevant documents
-                .similarityThreshold(0.6)  // Lower threshold for broader context
-                .build();
+    /**
+     * Streams the answer as server-sent events: a {@code sources} event with the retrieved
+     * documents, one {@code token} event per chunk from the chat model, then {@code done}.
+     * Cancelling the subscription, e.g. when the client disconnects, cancels the upstream
+     * chat call.
+     */
+    public Flux<ServerSentEvent<Object>> streamResponse(String userQuery) {
+        logger.info("Processing streaming RAG query: {}", userQuery);
+        
+        vectorStoreService.syncIndexes();
+        Optional<String> directAnswer = indicatorLookupService.answer(userQuery);
+        if (directAnswer.isPresent()) {
+            return Flux.just(event("sources", List.of()), event("token", directAnswer.get()), event("done", ""));
+        }
         
-        return vectorStore.similaritySearch(searchRequest);
+        // Retrieval blocks, so it runs off the request thread and only starts on subscription
+        String endpoint = RagMetrics.currentEndpoint();
+        return Mono.fromCallable(RagMetrics.withEndpoint(() -> {
+                    List<Document> relevantDocs = retrieveRelevantDocuments(userQuery);
+                    return new Retrieval(relevantDocs, relevantDocs.isEmpty() ? null : buildPrompt(userQuery, relevantDocs));
+                }))
+                .subscribeOn(Schedulers.fromExecutor(outboundExecutor))
+                .flatMapMany(retrieval -> {
+                    List<Document> relevantDocs = retrieval.documents();
+                    if (relevantDocs.isEmpty()) {
+                        logger.warn("No relevant documents found for streaming query: {}", userQuery);
+                        return Flux.just(event("sources", List.of()), event("token", NO_RELEVANT_DATA_RESPONSE), event("done", ""));
+                    }
+                    
+                    // The chat permit is held until the stream completes, fails or is cancelled
+                    Flux<ServerSentEvent<Object>> tokens = Flux.using(
+                            () -> downstreamLimiter.acquire(Downstream.CHAT),
+                            permit -> Flux.defer(() -> {
+                                long start = System.nanoTime();
+                                return chatClient.prompt(retrieval.prompt())
+                                        .stream()
+                                        .content()
+                                        .map(token -> event("token", token))
+                                        .doFinally(signal -> ragMetrics.record(Stage.LLM_CALL, endpoint,
+                                                ragMetrics.modelFor(Stage.LLM_CALL), System.nanoTime() - start));
+                            }),
+                            DownstreamLimiter.Permit::close);
+                    return Flux.concat(Flux.just(event("sources", toSources(relevantDocs))), tokens, Flux.just(event("done", "")));
+                })
+                .doOnCancel(() -> logger.info("Client disconnected, cancelled streaming response for: {}", userQuery))
+                .onErrorResume(e -> {
+                    logger.error("Error streaming response from OpenAI: {}", e.getMessage(), e);
+                    return Flux.just(event("error", "I encountered an error while processing your request. Please try again later."));
+                });
     }
     
-    private String prepareContext(List<Document> documents) {
+    private Prompt buildPrompt(String userQuery, List<Document> relevantDocs) {
+        String context = prepareContext(relevantDocs);
+        logger.debug("Prepared context for OpenAI: {}", context);
+        
+        // Static instructions first, then the context, then the question
+        List<Message> messages = List.of(
+            new SystemMessage(SYSTEM_PROMPT),
+            new SystemMessage("Context Information:\n" + context),
+            new UserMessage(userQuery)
+        );
+        
+        return new Prompt(messages);
+    }
+    
+    private List<Map<String, Object>> toSources(List<Document> documents) {
         return documents.stream()
                 .map(doc -> {
-                    String content = doc.getText();
-                    String metadata = formatMetadata(doc);
-                    return content + " " + metadata;
+                    Map<String, Object> source = new HashMap<>();
+                    source.put("content", doc.getText());
+                    source.put("metadata", doc.getMetadata());
+                    return source;
                 })
-                .collect(Collectors.joining("\n\n"));
+                .toList();
+    }
+    
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+    
+    private List<Document> retrieveRelevantDocuments(String query) {
+        // Top 5 documents with a lower threshold for broader context, using the configured retrieval mode
+        return vectorStoreService.searchSimilarDocuments(query, 5, 0.6);
+    }
+    
+    // Package-private for the benchmarks in src/jmh/java
+    String prepareContext(List<Document> documents) {
+        String context = ragMetrics.time(Stage.CONTEXT_ASSEMBLY, () -> contextBuilder.build(documents));
+        ragMetrics.recordContextSize(context.length());
+        return context;
     }
     
     public String generateExternalResponse(String userQuery, String externalUrl) {
@@ -131,7 +235,7 @@ public class RagService {
         
         if (relevantDocs.isEmpty()) {
             logger.warn("No relevant documents found for external query: {}", userQuery);
-            return "I couldn't find any relevant macroeconomic data for your query. Please try rephrasing your question or check if the data has been loaded.";
+            return NO_RELEVANT_DATA_RESPONSE;
         }
         
         logger.info("Found {} relevant documents for external query", relevantDocs.size());
@@ -141,63 +245,52 @@ public class RagService {
         logger.debug("Prepared context for external LLM: {}", context);
         
         // Step 3: Create request payload for external LLM
-        Map<String, Object> requestPayload = new HashMap<>();
-        requestPayload.put("prompt", userQuery);
-        requestPayload.put("context", context);
-        requestPayload.put("system_message", "You are an AI assistant specialized in analyzing macroeconomic data. Use the provided context to answer the user's question.");
+        ExternalLlmRequest requestPayload = new ExternalLlmRequest(
+            userQuery,
+            context,
+            "You are an AI assistant specialized in analyzing macroeconomic data. Use the provided context to answer the user's question."
+        );
         
         // Step 4: Call external LLM API
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestPayload, headers);
-            
             logger.info("Sending request to external LLM at: {}", externalUrl);
             logger.debug("External LLM Request payload: {}", requestPayload);
             
+            URI uri = URI.create(externalUrl);
             long startTime = System.currentTimeMillis();
-            ResponseEntity<Map> response = restTemplate.exchange(
-                externalUrl, 
-                HttpMethod.POST, 
-                requestEntity, 
-                Map.class
-            );
+            ExternalLlmResponse response;
+            try {
+                response = downstreamLimiter.call(Downstream.EXTERNAL_LLM, () -> externalLlmClient.generate(uri, requestPayload));
+            } finally {
+                ragMetrics.record(Stage.LLM_CALL, RagMetrics.currentEndpoint(), "external",
+                        TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - startTime));
+            }
             long endTime = System.currentTimeMillis();
             
             logger.info("External LLM API call completed in {} ms", endTime - startTime);
-            logger.debug("External LLM Response: {}", response.getBody());
+            logger.debug("External LLM Response: {}", response);
             
-            if (response.getBody() != null && response.getBody().containsKey("response")) {
-                String generatedResponse = response.getBody().get("response").toString();
+            if (response != null && response.response() != null) {
                 logger.info("Successfully generated response from external LLM");
-                return generatedResponse;
+                return response.response();
             } else {
-                logger.warn("External LLM response format unexpected: {}", response.getBody());
+                logger.warn("External LLM response format unexpected: {}", response);
                 return "External LLM returned an unexpected response format.";
             }
             
+        } catch (DownstreamBusyException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error calling external LLM at {}: {}", externalUrl, e.getMessage(), e);
             return "I encountered an error while calling the external LLM. Please check the URL and try again.";
         }
     }
     
-    private String formatMetadata(Document doc) {
-        StringBuilder metadata = new StringBuilder();
-        metadata.append("(");
-        
-        if (doc.getMetadata().containsKey("indicator")) {
-            metadata.append("Indicator: ").append(doc.getMetadata().get("indicator")).append(", ");
-        }
-        if (doc.getMetadata().containsKey("units")) {
-            metadata.append("Units: ").append(doc.getMetadata().get("units")).append(", ");
-        }
-        if (doc.getMetadata().containsKey("year")) {
-            metadata.append("Year: ").append(doc.getMetadata().get("year"));
+    private record Retrieval(List<Document> documents, Prompt prompt) {}
+    
+    private static class ChatCallFailedException extends RuntimeException {
+        ChatCallFailedException(Throwable cause) {
+            super(cause);
         }
-        
-        metadata.append(")");
-        return metadata.toString();
     }
 }
\ No newline at end of file
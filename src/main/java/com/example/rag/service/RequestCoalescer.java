@@ -0,0 +1,72 @@
+package com.example.rag.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: while a loader for a key is running, concurrent callers with
+ * the same key wait for it and receive its result (or its exception) instead of starting
+ * their own. Nothing is retained once the call completes; that is the cache's job.
+ */
+@Service
+public class RequestCoalescer {
+    
+    private static final Logger logger = LoggerFactory.getLogger(RequestCoalescer.class);
+    
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Object key, Supplier<T> loader) {
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            logger.debug("Joining in-flight call for {}", key);
+            return (T) await(existing);
+        }
+        
+        try {
+            T value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+    
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+    
+    public int getInFlight() {
+        return inFlight.size();
+    }
+    
+    private static Object await(CompletableFuture<Object> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            // Rethrow what the leading caller saw, so callers can handle it the same way
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
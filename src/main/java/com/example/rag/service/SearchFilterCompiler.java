@@ -0,0 +1,108 @@
+package com.example.rag.service;
+
+import com.example.rag.model.SearchFilter;
+import com.example.rag.vectorstore.LocalVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder.Op;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns a {@link SearchFilter} into a filter expression tree, built directly rather than
+ * parsed from text, which the vector store applies before comparing vectors: Redis
+ * renders it into the pre-filter of its KNN query and the in-process stores compile it
+ * into one predicate per search.
+ * <p>
+ * Redis inserts TAG values into the query as they are, so for Redis every character
+ * other than a letter, digit or underscore is escaped; a name can therefore never
+ * change the structure of the query. The in-process stores compare raw values.
+ */
+@Component
+public class SearchFilterCompiler {
+    
+    /** Indexed metadata key holding the start of a row's fiscal year, e.g. 2007 for 2007/08. */
+    public static final String YEAR_START = "yearStart";
+    
+    /** Indexed metadata key holding a row's value as a number, absent when the value is not numeric. */
+    public static final String NUMERIC_VALUE = "numericValue";
+    
+    private final FilterExpressionBuilder builder = new FilterExpressionBuilder();
+    
+    @Autowired
+    private VectorStore vectorStore;
+    
+    /**
+     * Returns the filter's conditions joined with AND, or null when it sets none.
+     */
+    public Filter.Expression compile(SearchFilter filter) {
+        List<Op> conditions = new ArrayList<>();
+        if (filter.fromYear() != null && filter.fromYear().equals(filter.toYear())) {
+            conditions.add(builder.eq(YEAR_START, filter.fromYear()));
+        } else {
+            if (filter.fromYear() != null) {
+                conditions.add(builder.gte(YEAR_START, filter.fromYear()));
+            }
+            if (filter.toYear() != null) {
+                conditions.add(builder.lte(YEAR_START, filter.toYear()));
+            }
+        }
+        if (filter.indicators() != null) {
+            conditions.add(anyOf("indicator", filter.indicators()));
+        }
+        if (filter.units() != null) {
+            conditions.add(anyOf("units", filter.units()));
+        }
+        if (filter.minValue() != null) {
+            conditions.add(builder.gte(NUMERIC_VALUE, filter.minValue()));
+        }
+        if (filter.maxValue() != null) {
+            conditions.add(builder.lte(NUMERIC_VALUE, filter.maxValue()));
+        }
+        
+        return conditions.stream()
+                .reduce(builder::and)
+                .map(Op::build)
+                .orElse(null);
+    }
+    
+    private Op anyOf(String key, List<String> names) {
+        List<Object> values = names.stream()
+                .map(SearchFilterCompiler::normalize)
+                .distinct()
+                .map(name -> (Object) tagValue(name))
+                .toList();
+        return values.size() == 1 ? builder.eq(key, values.get(0)) : builder.in(key, values);
+    }
+    
+    private String tagValue(String value) {
+        return vectorStore instanceof LocalVectorStore ? value : escapeTag(value);
+    }
+    
+    /**
+     * Backslash-escapes everything but letters, digits and underscores, which is what a
+     * RediSearch TAG query needs to take a value literally.
+     */
+    static String escapeTag(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+    
+    /**
+     * Collapses runs of whitespace, as done for the indexed names (the CSV wraps some units over two lines).
+     */
+    static String normalize(String name) {
+        return name.trim().replaceAll("\\s+", " ");
+    }
+}
@@ -1,91 +1,616 @@
 package com.example.rag.service;
 
+import com.example.rag.embedding.CachingEmbeddingModel;
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
+import com.example.rag.model.IndexChangedEvent;
+import com.example.rag.model.IngestionResult;
 import com.example.rag.model.MacroeconomicIndicator;
+import com.example.rag.model.SearchFilter;
+import com.example.rag.service.DownstreamLimiter.Downstream;
+import com.example.rag.vectorstore.LocalVectorStore;
+import com.example.rag.vectorstore.VersionedRedisVectorStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 @Service
 public class VectorStoreService {
     
     private static final Logger logger = LoggerFactory.getLogger(VectorStoreService.class);
     
+    /** Metadata key telling row documents apart from per-indicator series documents. */
+    public static final String LEVEL = "level";
+    
+    public static final String ROW_LEVEL = "row";
+    
+    public static final String SERIES_LEVEL = "series";
+    
+    private static final Filter.Expression SERIES_ONLY = new FilterExpressionBuilder().eq(LEVEL, SERIES_LEVEL).build();
+    
+    // Documents stored before series documents existed have no level and count as rows
+    private static final Filter.Expression ROWS_ONLY = new FilterExpressionBuilder().ne(LEVEL, SERIES_LEVEL).build();
+    
+    // Metadata read back from the Redis store when the in-process indexes are rebuilt from it
+    private static final List<String> STORED_METADATA = List.of("indicator", "units", "year", "value", "source", LEVEL);
+    
     @Autowired
     private VectorStore vectorStore;
     
+    @Autowired
+    private EmbeddingModel embeddingModel;
+    
     @Autowired
     private CsvProcessingService csvProcessingService;
     
-    public void loadAndStoreDocuments(String csvFileName) {
+    @Autowired
+    private IngestionManifestService ingestionManifestService;
+    
+    @Autowired
+    private QueryResultCacheService queryResultCacheService;
+    
+    @Autowired
+    private LexicalIndexService lexicalIndexService;
+    
+    @Autowired
+    private IndicatorLookupService indicatorLookupService;
+    
+    @Autowired
+    private DownstreamLimiter downstreamLimiter;
+    
+    @Autowired
+    private RagMetrics ragMetrics;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private SearchFilterCompiler searchFilterCompiler;
+    
+    @Value("${app.ingestion.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${app.ingestion.max-concurrent-batches:4}")
+    private int maxConcurrentBatches;
+    
+    @Value("${app.retrieval.mode:vector}")
+    private String retrievalMode;
+    
+    @Value("${app.retrieval.hybrid.candidates:20}")
+    private int hybridCandidates;
+    
+    @Value("${app.retrieval.hybrid.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${app.ingestion.series-documents.enabled:true}")
+    private boolean seriesDocumentsEnabled;
+    
+    @Value("${app.ingestion.reuse-embeddings:true}")
+    private boolean reuseEmbeddings;
+    
+    @Value("${app.retrieval.index-sync-interval-ms:5000}")
+    private long indexSyncIntervalMs;
+    
+    // Held while the lexical and lookup indexes are replaced, by a load or from the stored documents
+    private final ReentrantLock indexLock = new ReentrantLock();
+    
+    // The Redis index version the lexical and lookup indexes were built from
+    private volatile int indexedVersion = -1;
+    
+    private volatile long lastSyncCheck = System.nanoTime();
+    
+    public IngestionResult loadAndStoreDocuments(String csvFileName) {
+        return loadAndStoreDocuments(csvFileName, IngestionListener.NONE);
+    }
+    
+    /**
+     * Loads the CSV, reporting progress to the listener. Documents are tagged with the file
+     * as their {@code source}, and a load only adds, replaces or removes documents of that
+     * file; what other files stored stays in the vector store and in the lexical and lookup
+     * indexes. Each batch is recorded in the manifest as soon as it is stored, so a load
+     * that is cancelled or dies part-way resumes where it stopped when run again: the rows
+     * already stored are skipped. With a versioned Redis store the load fills a new index
+     * version, which searches only switch to once it is complete (see {@link IndexBuild}).
+     * If any batch fails, the load stores what it can but neither removes stale documents
+     * nor replaces the lexical and lookup indexes; running it again completes it.
+     *
+     * @throws CancellationException if the listener cancelled the load; stale documents
+     *         are then left in place and the lexical and lookup indexes are not replaced
+     */
+    public IngestionResult loadAndStoreDocuments(String csvFileName, IngestionListener listener) {
         logger.info("Loading and storing documents from CSV: {}", csvFileName);
         
-        // Load CSV data
-        List<MacroeconomicIndicator> indicators = csvProcessingService.loadDataFromCsv(csvFileName);
-        List<MacroeconomicIndicator> validIndicators = csvProcessingService.filterValidData(indicators);
+        IndexBuild build = IndexBuild.of(vectorStore, ingestionManifestService, csvFileName, reuseEmbeddings);
+        Set<String> indexedIds = build.indexedIds();
+        Set<String> seenIds = new HashSet<>();
+        LexicalIndexService.Builder lexicalIndex = lexicalIndexService.newBuilder();
+        IndicatorLookupService.Builder lookupIndex = indicatorLookupService.newBuilder();
+        // The indexes are rebuilt from scratch, so they start out with the rows other files stored
+        for (Document row : storedRows(liveVersion())) {
+            if (!csvFileName.equals(row.getMetadata().get("source"))) {
+                lexicalIndex.add(row);
+                lookupIndex.add(toIndicator(row));
+            }
+        }
+        IndicatorSeriesBuilder series = new IndicatorSeriesBuilder(csvFileName);
+        BatchOutcome outcome;
+        
+        // Stream CSV rows so the first batches are embedded while the rest of the file is still being parsed.
+        // Rows already listed in the manifest are unchanged and skip embedding entirely, but every row goes
+        // into the lexical and lookup indexes since those are rebuilt from scratch on each load.
+        try (Stream<MacroeconomicIndicator> validIndicators = csvProcessingService.streamValidData(csvFileName, listener::bytesRead)) {
+            Iterator<Document> documents = validIndicators
+                    .peek(indicator -> listener.rowParsed())
+                    .peek(lookupIndex::add)
+                    .peek(series::add)
+                    .map(indicator -> ragMetrics.time(Stage.DOCUMENT_CONVERSION, () -> convertToDocument(indicator, csvFileName)))
+                    .filter(document -> seenIds.add(document.getId()))
+                    .peek(lexicalIndex::add)
+                    .filter(document -> isChanged(document, indexedIds, listener))
+                    .iterator();
+            
+            outcome = storeInBatches(build, documents, listener);
+        }
+        
+        // Series documents need every row of their indicator, so they are stored once the rows are done
+        if (seriesDocumentsEnabled && !listener.isCancelled()) {
+            Iterator<Document> seriesDocuments = series.build().stream()
+                    .filter(document -> seenIds.add(document.getId()))
+                    .filter(document -> isChanged(document, indexedIds, listener))
+                    .iterator();
+            outcome = outcome.plus(storeInBatches(build, seriesDocuments, listener));
+        }
+        
+        // A partial scan cannot tell stale documents from unread ones, so nothing is deleted or replaced
+        if (listener.isCancelled()) {
+            logger.info("Loading {} cancelled after storing {} documents", csvFileName, outcome.storedDocuments());
+            throw new CancellationException("Loading " + csvFileName + " was cancelled");
+        }
+        
+        if (outcome.failedBatches() > 0 && outcome.storedDocuments() == 0) {
+            throw new RuntimeException("Failed to store any of the " + outcome.totalBatches() + " document batches");
+        }
+        
+        // A stale ID may belong to a row whose new version was in a failed batch, so after a failure
+        // the old documents are kept and the lexical and lookup indexes stay consistent with them
+        int deletedDocuments = 0;
+        boolean lexicalIndexChanged = false;
+        if (outcome.failedBatches() > 0) {
+            logger.warn("{} of {} batches failed; keeping stale documents and the current lexical and lookup indexes",
+                    outcome.failedBatches(), outcome.totalBatches());
+        } else {
+            indexLock.lock();
+            try {
+                deletedDocuments = build.complete(seenIds);
+                lexicalIndexChanged = lexicalIndexService.replace(lexicalIndex.build());
+                indicatorLookupService.replace(lookupIndex.build());
+                indexedVersion = liveVersion();
+            } finally {
+                indexLock.unlock();
+            }
+        }
         
-        logger.info("Processing {} valid indicators", validIndicators.size());
+        if (outcome.storedDocuments() > 0 || deletedDocuments > 0 || lexicalIndexChanged) {
+            eventPublisher.publishEvent(new IndexChangedEvent(csvFileName, outcome.storedDocuments(), deletedDocuments));
+        }
         
-        // Convert to Document objects
-        List<Document> documents = validIndicators.stream()
-                .map(this::convertToDocument)
+        IngestionResult result = new IngestionResult(
+                seenIds.size(),
+                outcome.storedDocuments(),
+                seenIds.size() - outcome.submittedDocuments(),
+                deletedDocuments,
+                outcome.totalBatches(),
+                outcome.failedBatches());
+        
+        logger.info("Stored {} new or changed documents, skipped {} unchanged, deleted {} stale ({} of {} batches failed)",
+                result.storedDocuments(), result.unchangedDocuments(), result.deletedDocuments(),
+                result.failedBatches(), result.totalBatches());
+        return result;
+    }
+    
+    /**
+     * Rebuilds the lexical and lookup indexes from the row documents in the vector store,
+     * which outlive a restart while the in-process indexes do not. Skipped while a load is
+     * replacing them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreIndexes() {
+        boolean persistent = vectorStore instanceof LocalVectorStore || vectorStore instanceof VersionedRedisVectorStore;
+        if (!persistent || !indexLock.tryLock()) {
+            return;
+        }
+        try {
+            int version = liveVersion();
+            LexicalIndexService.Builder lexicalIndex = lexicalIndexService.newBuilder();
+            IndicatorLookupService.Builder lookupIndex = indicatorLookupService.newBuilder();
+            List<Document> rows = storedRows(version);
+            for (Document row : rows) {
+                lexicalIndex.add(row);
+                lookupIndex.add(toIndicator(row));
+            }
+            boolean changed = lexicalIndexService.replace(lexicalIndex.build());
+            indicatorLookupService.replace(lookupIndex.build());
+            indexedVersion = version;
+            logger.info("Rebuilt the lexical and lookup indexes from {} stored rows", rows.size());
+            
+            if (changed) {
+                eventPublisher.publishEvent(new IndexChangedEvent(vectorStore.getName(), 0, 0));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not rebuild the lexical and lookup indexes from the vector store: {}", e.getMessage());
+        } finally {
+            indexLock.unlock();
+        }
+    }
+    
+    /**
+     * Rebuilds the lexical and lookup indexes if another instance has switched the Redis
+     * index to a new version since they were built. Checks at most once per sync interval.
+     */
+    public void syncIndexes() {
+        if (!(vectorStore instanceof VersionedRedisVectorStore versioned)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastSyncCheck < TimeUnit.MILLISECONDS.toNanos(indexSyncIntervalMs)) {
+            return;
+        }
+        lastSyncCheck = now;
+        
+        try {
+            if (versioned.liveVersion() != indexedVersion) {
+                restoreIndexes();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not check the live index version: {}", e.getMessage());
+        }
+    }
+    
+    private int liveVersion() {
+        return vectorStore instanceof VersionedRedisVectorStore versioned ? versioned.liveVersion() : -1;
+    }
+    
+    private List<Document> storedRows(int version) {
+        List<Document> documents;
+        if (vectorStore instanceof LocalVectorStore localStore) {
+            documents = localStore.documents();
+        } else if (vectorStore instanceof VersionedRedisVectorStore versioned) {
+            documents = versioned.documents(version, STORED_METADATA);
+        } else {
+            return List.of();
+        }
+        return documents.stream()
+                .filter(document -> !SERIES_LEVEL.equals(document.getMetadata().get(LEVEL)))
                 .toList();
+    }
+    
+    private static MacroeconomicIndicator toIndicator(Document row) {
+        Map<String, Object> metadata = row.getMetadata();
+        return new MacroeconomicIndicator(metadataText(metadata.get("indicator")), metadataText(metadata.get("units")),
+                metadataText(metadata.get("year")), metadataText(metadata.get("value")));
+    }
+    
+    private static String metadataText(Object value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    private static boolean isChanged(Document document, Set<String> indexedIds, IngestionListener listener) {
+        if (indexedIds.contains(document.getId())) {
+            listener.documentUnchanged();
+            return false;
+        }
+        return true;
+    }
+    
+    private BatchOutcome storeInBatches(IndexBuild build, Iterator<Document> documents, IngestionListener listener) {
+        int size = Math.max(1, batchSize);
+        // Bounds both the number of batches being embedded/written and the number held in memory
+        Semaphore inFlight = new Semaphore(Math.max(1, maxConcurrentBatches));
+        AtomicInteger storedDocuments = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
+        int submittedDocuments = 0;
+        int totalBatches = 0;
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!listener.isCancelled() && documents.hasNext()) {
+                List<Document> batch = new ArrayList<>(size);
+                while (documents.hasNext() && batch.size() < size) {
+                    batch.add(documents.next());
+                }
+                
+                int batchNumber = ++totalBatches;
+                submittedDocuments += batch.size();
+                
+                inFlight.acquireUninterruptibly();
+                executor.submit(RagMetrics.withEndpoint(() -> {
+                    try {
+                        build.store(batch);
+                        storedDocuments.addAndGet(batch.size());
+                        listener.batchStored(batch.size());
+                        logger.debug("Stored batch {} ({} documents)", batchNumber, batch.size());
+                    } catch (Exception e) {
+                        failedBatches.incrementAndGet();
+                        listener.batchFailed(batch.size());
+                        logger.error("Failed to store batch {} ({} documents): {}", batchNumber, batch.size(), e.getMessage(), e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+        }
+        
+        return new BatchOutcome(submittedDocuments, storedDocuments.get(), totalBatches, failedBatches.get());
+    }
+    
+    /**
+     * Embeds the given queries in a single call so that the searches which follow find their
+     * vectors in the embedding cache. Does nothing when the embedding cache is disabled.
+     */
+    public void embedQueries(List<String> queries) {
+        if (!(embeddingModel instanceof CachingEmbeddingModel)) {
+            return;
+        }
         
-        // Store in vector store
-        vectorStore.add(documents);
-        logger.info("Successfully stored {} documents in Redis vector store", documents.size());
+        List<String> distinctQueries = queries.stream().distinct().toList();
+        try {
+            embeddingModel.embed(distinctQueries);
+            logger.info("Embedded {} queries in one call", distinctQueries.size());
+        } catch (Exception e) {
+            // The searches embed their own queries if this fails
+            logger.warn("Failed to embed {} queries up front: {}", distinctQueries.size(), e.getMessage());
+        }
     }
     
     public List<Document> searchSimilarDocuments(String query, int topK, double similarityThreshold) {
+        return searchSimilarDocuments(query, topK, similarityThreshold, retrievalMode);
+    }
+    
+    /**
+     * Searches in the given mode: {@code vector} ranks rows by embedding similarity only,
+     * {@code hybrid} fuses the vector ranking with the BM25 lexical ranking, and
+     * {@code hierarchical} searches the per-indicator series documents first, filling any
+     * remaining places with rows of other indicators.
+     */
+    public List<Document> searchSimilarDocuments(String query, int topK, double similarityThreshold, String mode) {
+        syncIndexes();
+        List<Document> results = switch (mode) {
+            case "vector" -> queryResultCacheService.getOrCompute("search", query, List.of(topK, similarityThreshold),
+                    () -> doSearchSimilarDocuments(query, topK, similarityThreshold));
+            case "hybrid" -> queryResultCacheService.getOrCompute("search-hybrid", query, List.of(topK, similarityThreshold),
+                    () -> doHybridSearch(query, topK, similarityThreshold));
+            case "hierarchical" -> queryResultCacheService.getOrCompute("search-hierarchical", query, List.of(topK, similarityThreshold),
+                    () -> doHierarchicalSearch(query, topK, similarityThreshold));
+            default -> throw new IllegalArgumentException("Unknown retrieval mode: " + mode);
+        };
+        ragMetrics.recordDocumentsRetrieved(results.size());
+        return results;
+    }
+    
+    private List<Document> doSearchSimilarDocuments(String query, int topK, double similarityThreshold) {
         logger.info("Searching for documents similar to: {}", query);
         
-        SearchRequest searchRequest = SearchRequest.builder()
+        List<Document> results = similaritySearch(rowSearchRequest(query, topK, similarityThreshold));
+        logger.info("Found {} similar documents", results.size());
+        
+        return List.copyOf(results);
+    }
+    
+    private List<Document> doHybridSearch(String query, int topK, double similarityThreshold) {
+        logger.info("Hybrid search for: {}", query);
+        
+        if (lexicalIndexService.size() == 0) {
+            logger.warn("The lexical index is empty, so hybrid search only ranks by vector similarity");
+        }
+        int candidates = Math.max(topK, hybridCandidates);
+        List<Document> vectorResults = similaritySearch(rowSearchRequest(query, candidates, similarityThreshold));
+        List<Document> lexicalResults = lexicalIndexService.search(query, candidates);
+        
+        List<Document> results = fuseRankings(List.of(vectorResults, lexicalResults), topK);
+        logger.info("Found {} documents ({} vector, {} lexical candidates)", results.size(), vectorResults.size(), lexicalResults.size());
+        
+        return List.copyOf(results);
+    }
+    
+    private List<Document> doHierarchicalSearch(String query, int topK, double similarityThreshold) {
+        logger.info("Hierarchical search for: {}", query);
+        
+        SearchRequest seriesRequest = SearchRequest.builder()
                 .query(query)
                 .topK(topK)
                 .similarityThreshold(similarityThreshold)
+                .filterExpression(SERIES_ONLY)
                 .build();
+        List<Document> seriesResults = similaritySearch(seriesRequest);
+        if (seriesResults.size() >= topK) {
+            logger.info("Found {} series documents", seriesResults.size());
+            return List.copyOf(seriesResults);
+        }
         
-        List<Document> results = vectorStore.similaritySearch(searchRequest);
-        logger.info("Found {} similar documents", results.size());
+        // Too few series matched: fill up with rows, skipping indicators a series already covers
+        Set<Object> coveredIndicators = new HashSet<>();
+        seriesResults.forEach(document -> coveredIndicators.add(document.getMetadata().get("indicator")));
+        List<Document> results = new ArrayList<>(seriesResults);
+        similaritySearch(rowSearchRequest(query, 2 * topK, similarityThreshold)).stream()
+                .filter(document -> !coveredIndicators.contains(document.getMetadata().get("indicator")))
+                .limit(topK - seriesResults.size())
+                .forEach(results::add);
+        logger.info("Found {} series and {} row documents", seriesResults.size(), results.size() - seriesResults.size());
         
-        return results;
+        return List.copyOf(results);
     }
     
-    public List<Document> searchWithMetadataFilter(String query, int topK, String year) {
-        logger.info("Searching for documents similar to: {} for year: {}", query, year);
+    private SearchRequest rowSearchRequest(String query, int topK, double similarityThreshold) {
+        return rowSearchRequest(query, topK, similarityThreshold, null);
+    }
+    
+    /**
+     * A vector search over row documents only, restricted further by {@code filter} if it
+     * is not null.
+     */
+    private SearchRequest rowSearchRequest(String query, int topK, double similarityThreshold, Filter.Expression filter) {
+        Filter.Expression rows = seriesDocumentsEnabled ? ROWS_ONLY : null;
+        if (rows != null && filter != null) {
+            filter = new Filter.Expression(Filter.ExpressionType.AND, filter, rows);
+        } else if (filter == null) {
+            filter = rows;
+        }
         
-        SearchRequest searchRequest = SearchRequest.builder()
+        SearchRequest.Builder builder = SearchRequest.builder()
                 .query(query)
                 .topK(topK)
-                .similarityThreshold(0.7)
-                .filterExpression("year == '" + year + "'")
-                .build();
-        
-        List<Document> results = vectorStore.similaritySearch(searchRequest);
-        logger.info("Found {} similar documents for year {}", results.size(), year);
+                .similarityThreshold(similarityThreshold);
+        if (filter != null) {
+            builder.filterExpression(filter);
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Reciprocal rank fusion: each document scores the sum of {@code 1 / (k + rank)} over the
+     * rankings it appears in, so agreement between retrievers matters more than raw scores.
+     */
+    private List<Document> fuseRankings(List<List<Document>> rankings, int topK) {
+        Map<String, Double> fusedScores = new HashMap<>();
+        Map<String, Document> documentsById = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                fusedScores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                documentsById.putIfAbsent(document.getId(), document);
+            }
+        }
         
+        return documentsById.values().stream()
+                .sorted(Comparator.comparingDouble((Document document) -> fusedScores.get(document.getId())).reversed())
+                .limit(topK)
+                .map(document -> Document.builder()
+                        .id(document.getId())
+                        .text(document.getText())
+                        .metadata(document.getMetadata())
+                        .score(fusedScores.get(document.getId()))
+                        .build())
+                .toList();
+    }
+    
+    /**
+     * Searches the rows of one fiscal year, e.g. {@code 2007/08}.
+     *
+     * @throws IllegalArgumentException if {@code year} is not a fiscal year
+     */
+    public List<Document> searchWithMetadataFilter(String query, int topK, String year) {
+        return searchWithMetadataFilter(query, topK, 0.7, SearchFilter.forYear(year));
+    }
+    
+    /**
+     * Searches the rows matching {@code filter}. The filter is applied by the vector store
+     * on its indexed metadata fields before vectors are compared, so only matching rows
+     * are scored.
+     */
+    public List<Document> searchWithMetadataFilter(String query, int topK, double similarityThreshold, SearchFilter filter) {
+        syncIndexes();
+        List<Document> results = queryResultCacheService.getOrCompute("search-filtered", query, List.of(topK, similarityThreshold, filter),
+                () -> doSearchWithMetadataFilter(query, topK, similarityThreshold, filter));
+        ragMetrics.recordDocumentsRetrieved(results.size());
         return results;
     }
     
-    private Document convertToDocument(MacroeconomicIndicator indicator) {
+    private List<Document> doSearchWithMetadataFilter(String query, int topK, double similarityThreshold, SearchFilter filter) {
+        logger.info("Searching for documents similar to: {} with filter: {}", query, filter);
+        
+        List<Document> results = similaritySearch(rowSearchRequest(query, topK, similarityThreshold, searchFilterCompiler.compile(filter)));
+        logger.info("Found {} similar documents matching {}", results.size(), filter);
+        
+        return List.copyOf(results);
+    }
+    
+    /**
+     * Queries the vector store under the vector store permit. The recorded vector search time
+     * includes embedding the query, which the store does itself.
+     */
+    private List<Document> similaritySearch(SearchRequest searchRequest) {
+        return downstreamLimiter.call(Downstream.VECTOR_STORE,
+                () -> ragMetrics.time(Stage.VECTOR_SEARCH, () -> vectorStore.similaritySearch(searchRequest)));
+    }
+    
+    // Package-private for the benchmarks in src/jmh/java
+    Document convertToDocument(MacroeconomicIndicator indicator, String source) {
         // Create document content
         String content = indicator.toDocumentText();
         
         // Add metadata
+        // Names are indexed as exact TAG values, so line breaks in them are collapsed
         Map<String, Object> metadata = new HashMap<>();
-        metadata.put("indicator", indicator.getIndicators());
-        metadata.put("units", indicator.getUnits());
+        metadata.put("indicator", name(indicator.getIndicators()));
+        metadata.put("units", name(indicator.getUnits()));
         metadata.put("year", indicator.getYear());
         metadata.put("value", indicator.getValue());
-        metadata.put("source", "macroeconomic-indicator-2007-2017-by-monetary-sector.csv");
+        metadata.put("source", source);
+        metadata.put(LEVEL, ROW_LEVEL);
+        
+        // NUMERIC fields for range filters; a missing field only keeps the row out of those filters
+        int yearStart = SearchFilter.fiscalYearStart(indicator.getYear());
+        if (yearStart >= 0) {
+            metadata.put(SearchFilterCompiler.YEAR_START, yearStart);
+        }
+        Double numericValue = numericValue(indicator.getValue());
+        if (numericValue != null) {
+            metadata.put(SearchFilterCompiler.NUMERIC_VALUE, numericValue);
+        }
+        
+        return Document.builder()
+                .id(indicator.documentId(source))
+                .text(content)
+                .metadata(metadata)
+                .build();
+    }
+    
+    private static String name(String text) {
+        return text == null ? null : SearchFilterCompiler.normalize(text);
+    }
+    
+    private static Double numericValue(String value) {
+        try {
+            double number = Double.parseDouble(value.trim().replace(",", ""));
+            return Double.isFinite(number) ? number : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private record BatchOutcome(int submittedDocuments, int storedDocuments, int totalBatches, int failedBatches) {
         
-        return new Document(content, metadata);
+        BatchOutcome plus(BatchOutcome other) {
+            return new BatchOutcome(submittedDocuments + other.submittedDocuments, storedDocuments + other.storedDocuments,
+                    totalBatches + other.totalBatches, failedBatches + other.failedBatches);
+        }
     }
 }
\ No newline at end of file
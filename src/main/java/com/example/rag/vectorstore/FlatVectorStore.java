@@ -0,0 +1,506 @@
+package com.example.rag.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Exact-search vector store that keeps normalized embeddings off the Java heap in a
+ * memory-mapped file of contiguous float32 rows. Documents and deletions are recorded in
+ * an append-only JSON lines log next to it, so reopening the directory only re-maps the
+ * vectors and replays the log.
+ * <p>
+ * Searches split the rows into one segment per core, score each segment with the
+ * Vector API (when available) into its own bounded heap, and merge the per-segment
+ * top-K. Writes are serialized; searches only see rows whose log entry has been written.
+ * <p>
+ * With quantization enabled, an int8 copy of every row (plus one scale per row) is kept
+ * on the heap at a quarter of the float size. The first pass scans only those codes for
+ * {@code topK * oversampling} candidates, which are then rescored against the exact
+ * vectors in the mapped file, so the float rows can stay cold in the page cache.
+ */
+public class FlatVectorStore implements LocalVectorStore, AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlatVectorStore.class);
+    
+    private static final String VECTORS_FILE = "vectors.f32";
+    
+    private static final String LOG_FILE = "documents.jsonl";
+    
+    private static final String INDEX_FILE = "index.json";
+    
+    // Each mapping covers a whole number of rows below this size, so no row straddles two mappings
+    private static final long MAX_CHUNK_BYTES = 1L << 28;
+    
+    private static final int SCAN_BLOCK_ROWS = 64;
+    
+    private final EmbeddingModel embeddingModel;
+    
+    private final Path directory;
+    
+    private final int parallelism;
+    
+    private final boolean quantized;
+    
+    private final int oversampling;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private final Map<String, Integer> slotById = new ConcurrentHashMap<>();
+    
+    // A lock rather than a monitor: writes do file I/O and must not pin virtual threads
+    private final ReentrantLock writeLock = new ReentrantLock();
+    
+    private FileChannel vectorChannel;
+    
+    private BufferedWriter logWriter;
+    
+    private int dimensions;
+    
+    private int rowsPerChunk;
+    
+    private volatile FloatBuffer[] chunks = new FloatBuffer[0];
+    
+    private volatile StoredDocument[] slots = new StoredDocument[1024];
+    
+    private volatile QuantizedRows quantizedRows = new QuantizedRows(new byte[0], new float[0]);
+    
+    // Published last on every write; readers never look at slots at or beyond it
+    private volatile int rowCount;
+    
+    public FlatVectorStore(EmbeddingModel embeddingModel, Path directory, int parallelism) {
+        this(embeddingModel, directory, parallelism, false, 1);
+    }
+    
+    public FlatVectorStore(EmbeddingModel embeddingModel, Path directory, int parallelism,
+                           boolean quantized, int oversampling) {
+        this.embeddingModel = embeddingModel;
+        this.directory = directory;
+        this.parallelism = Math.max(1, parallelism);
+        this.quantized = quantized;
+        this.oversampling = Math.max(1, oversampling);
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open flat vector index at " + directory, e);
+        }
+    }
+    
+    @Override
+    public String getName() {
+        return "FlatVectorStore";
+    }
+    
+    @Override
+    public void add(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<float[]> embeddings = embeddingModel.embed(documents.stream().map(Document::getText).toList());
+        
+        writeLock.lock();
+        try {
+            if (dimensions == 0) {
+                initializeDimensions(embeddings.get(0).length);
+            }
+            
+            int firstSlot = rowCount;
+            StoredDocument[] grown = ensureSlotCapacity(firstSlot + documents.size());
+            QuantizedRows grownCodes = quantized
+                    ? quantizedRows.ensureCapacity(firstSlot + documents.size(), dimensions)
+                    : quantizedRows;
+            for (int i = 0; i < documents.size(); i++) {
+                int slot = firstSlot + i;
+                float[] normalized = VectorMath.normalize(embeddings.get(i));
+                writeVector(slot, normalized);
+                if (quantized) {
+                    grownCodes.scales[slot] = VectorMath.quantize(normalized, grownCodes.codes, slot * dimensions);
+                }
+            }
+            
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                int slot = firstSlot + i;
+                appendLog(Map.of("op", "add", "slot", slot, "id", document.getId(),
+                        "text", document.getText(), "metadata", document.getMetadata()));
+                grown[slot] = new StoredDocument(document.getId(), document.getText(), document.getMetadata());
+                replaceSlot(document.getId(), slot, grown);
+            }
+            logWriter.flush();
+            
+            slots = grown;
+            quantizedRows = grownCodes;
+            rowCount = firstSlot + documents.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write to flat vector index", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void delete(List<String> idList) {
+        writeLock.lock();
+        try {
+            StoredDocument[] current = slots;
+            for (String id : idList) {
+                Integer slot = slotById.remove(id);
+                if (slot != null) {
+                    current[slot].deleted = true;
+                    appendLog(Map.of("op", "delete", "id", id));
+                }
+            }
+            logWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write to flat vector index", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilters.compile(filterExpression);
+        int count = rowCount;
+        StoredDocument[] current = slots;
+        List<String> matching = new ArrayList<>();
+        for (int slot = 0; slot < count; slot++) {
+            StoredDocument document = current[slot];
+            if (document != null && !document.deleted && filter.test(document.metadata)) {
+                matching.add(document.id);
+            }
+        }
+        delete(matching);
+    }
+    
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        int count = rowCount;
+        if (count == 0) {
+            return List.of();
+        }
+        
+        float[] query = VectorMath.normalize(embeddingModel.embed(request.getQuery()));
+        Predicate<Map<String, Object>> filter = MetadataFilters.compile(request.getFilterExpression());
+        StoredDocument[] current = slots;
+        FloatBuffer[] mappedChunks = chunks;
+        QuantizedRows codes = quantized ? quantizedRows : null;
+        int topK = request.getTopK();
+        float threshold = (float) request.getSimilarityThreshold();
+        
+        // Approximate scores only pick candidates; the threshold applies to the exact rescoring
+        int candidates = quantized ? topK * oversampling : topK;
+        float firstPassThreshold = quantized ? Float.NEGATIVE_INFINITY : threshold;
+        
+        int segments = Math.min(parallelism, (count + SCAN_BLOCK_ROWS - 1) / SCAN_BLOCK_ROWS);
+        int rowsPerSegment = (count + segments - 1) / segments;
+        
+        List<Hit> hits = IntStream.range(0, segments)
+                .parallel()
+                .mapToObj(segment -> scan(query, filter, current, mappedChunks, codes, segment * rowsPerSegment,
+                        Math.min(count, (segment + 1) * rowsPerSegment), candidates, firstPassThreshold))
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingDouble(Hit::score).reversed())
+                .limit(candidates)
+                .toList();
+        
+        if (quantized) {
+            hits = rescore(query, hits, mappedChunks, topK, threshold);
+        }
+        
+        return hits.stream()
+                .map(hit -> toResult(current[hit.slot()], hit.score()))
+                .toList();
+    }
+    
+    @Override
+    public Set<String> documentIds() {
+        return Set.copyOf(slotById.keySet());
+    }
+    
+    @Override
+    public List<Document> documents() {
+        int count = rowCount;
+        StoredDocument[] current = slots;
+        List<Document> documents = new ArrayList<>(count);
+        for (int slot = 0; slot < count; slot++) {
+            StoredDocument document = current[slot];
+            if (document != null && !document.deleted) {
+                documents.add(Document.builder()
+                        .id(document.id)
+                        .text(document.text)
+                        .metadata(document.metadata)
+                        .build());
+            }
+        }
+        return documents;
+    }
+    
+    @Override
+    public int size() {
+        return slotById.size();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            logWriter.close();
+            vectorChannel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private List<Hit> scan(float[] query, Predicate<Map<String, Object>> filter, StoredDocument[] current,
+                           FloatBuffer[] mappedChunks, QuantizedRows codes, int start, int end, int topK,
+                           float threshold) {
+        PriorityQueue<Hit> best = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Hit::score));
+        float[] block = codes == null ? new float[SCAN_BLOCK_ROWS * dimensions] : null;
+        
+        int row = start;
+        while (row < end) {
+            int chunkIndex = row / rowsPerChunk;
+            int rowInChunk = row % rowsPerChunk;
+            int blockRows = Math.min(Math.min(SCAN_BLOCK_ROWS, end - row), rowsPerChunk - rowInChunk);
+            
+            // One bulk copy per block keeps the inner loop on a plain array the SIMD kernel can stream over
+            if (codes == null) {
+                mappedChunks[chunkIndex].get(rowInChunk * dimensions, block, 0, blockRows * dimensions);
+            }
+            for (int i = 0; i < blockRows; i++) {
+                int slot = row + i;
+                StoredDocument document = current[slot];
+                if (document == null || document.deleted || !filter.test(document.metadata)) {
+                    continue;
+                }
+                float score = codes == null
+                        ? VectorMath.dot(query, block, i * dimensions, dimensions)
+                        : VectorMath.dot(query, codes.codes, slot * dimensions, dimensions) * codes.scales[slot];
+                if (score < threshold) {
+                    continue;
+                }
+                if (best.size() < topK) {
+                    best.add(new Hit(slot, score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Hit(slot, score));
+                }
+            }
+            row += blockRows;
+        }
+        return new ArrayList<>(best);
+    }
+    
+    private List<Hit> rescore(float[] query, List<Hit> candidates, FloatBuffer[] mappedChunks, int topK,
+                              float threshold) {
+        float[] row = new float[dimensions];
+        List<Hit> rescored = new ArrayList<>(candidates.size());
+        for (Hit candidate : candidates) {
+            readRow(mappedChunks, candidate.slot(), row);
+            float score = VectorMath.dot(query, row);
+            if (score >= threshold) {
+                rescored.add(new Hit(candidate.slot(), score));
+            }
+        }
+        rescored.sort(Comparator.comparingDouble(Hit::score).reversed());
+        return rescored.subList(0, Math.min(topK, rescored.size()));
+    }
+    
+    private void readRow(FloatBuffer[] mappedChunks, int slot, float[] row) {
+        mappedChunks[slot / rowsPerChunk].get((slot % rowsPerChunk) * dimensions, row, 0, dimensions);
+    }
+    
+    private Document toResult(StoredDocument document, float score) {
+        Map<String, Object> metadata = new HashMap<>(document.metadata);
+        metadata.put("distance", 1 - score);
+        return Document.builder()
+                .id(document.id)
+                .text(document.text)
+                .metadata(metadata)
+                .score((double) score)
+                .build();
+    }
+    
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        vectorChannel = FileChannel.open(directory.resolve(VECTORS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            Map<String, Object> index = objectMapper.readValue(indexFile.toFile(), new TypeReference<>() {});
+            setDimensions(((Number) index.get("dimensions")).intValue());
+            replayLog();
+        }
+        
+        logWriter = Files.newBufferedWriter(directory.resolve(LOG_FILE), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logger.info("Opened flat vector index at {} with {} documents ({} dimensions, SIMD {}, quantization {})",
+                directory, slotById.size(), dimensions, VectorMath.SIMD_AVAILABLE ? "enabled" : "unavailable",
+                quantized ? "int8 x" + oversampling + " oversampling" : "off");
+    }
+    
+    private void replayLog() throws IOException {
+        Path logFile = directory.resolve(LOG_FILE);
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        int count = 0;
+        StoredDocument[] replayed = slots;
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Map<String, Object> entry = objectMapper.readValue(line, new TypeReference<>() {});
+                String id = (String) entry.get("id");
+                if ("delete".equals(entry.get("op"))) {
+                    Integer slot = slotById.remove(id);
+                    if (slot != null) {
+                        replayed[slot].deleted = true;
+                    }
+                    continue;
+                }
+                int slot = ((Number) entry.get("slot")).intValue();
+                count = Math.max(count, slot + 1);
+                replayed = ensureSlotCapacity(replayed, count);
+                @SuppressWarnings("unchecked")
+                Map<String, Object> metadata = (Map<String, Object>) entry.get("metadata");
+                replayed[slot] = new StoredDocument(id, (String) entry.get("text"), metadata);
+                replaceSlot(id, slot, replayed);
+            }
+        }
+        
+        // Vectors written without a matching log entry (e.g. a crash mid-batch) are simply overwritten later
+        for (int chunk = 0; (long) chunk * rowsPerChunk < count; chunk++) {
+            mapChunk(chunk);
+        }
+        slots = replayed;
+        if (quantized) {
+            quantizeRows(count);
+        }
+        rowCount = count;
+    }
+    
+    private void quantizeRows(int count) {
+        QuantizedRows rows = quantizedRows.ensureCapacity(count, dimensions);
+        float[] row = new float[dimensions];
+        for (int slot = 0; slot < count; slot++) {
+            readRow(chunks, slot, row);
+            rows.scales[slot] = VectorMath.quantize(row, rows.codes, slot * dimensions);
+        }
+        quantizedRows = rows;
+    }
+    
+    private void initializeDimensions(int embeddingDimensions) throws IOException {
+        setDimensions(embeddingDimensions);
+        objectMapper.writeValue(directory.resolve(INDEX_FILE).toFile(), Map.of("dimensions", embeddingDimensions));
+    }
+    
+    private void setDimensions(int embeddingDimensions) {
+        dimensions = embeddingDimensions;
+        rowsPerChunk = (int) (MAX_CHUNK_BYTES / ((long) embeddingDimensions * Float.BYTES));
+    }
+    
+    private void replaceSlot(String id, int slot, StoredDocument[] current) {
+        Integer previous = slotById.put(id, slot);
+        if (previous != null && previous != slot) {
+            current[previous].deleted = true;
+        }
+    }
+    
+    private StoredDocument[] ensureSlotCapacity(int required) {
+        return ensureSlotCapacity(slots, required);
+    }
+    
+    private static StoredDocument[] ensureSlotCapacity(StoredDocument[] current, int required) {
+        if (required <= current.length) {
+            return current;
+        }
+        return Arrays.copyOf(current, Math.max(required, current.length * 2));
+    }
+    
+    private void writeVector(int slot, float[] vector) throws IOException {
+        int chunkIndex = slot / rowsPerChunk;
+        while (chunks.length <= chunkIndex) {
+            mapChunk(chunks.length);
+        }
+        chunks[chunkIndex].put((slot % rowsPerChunk) * dimensions, vector);
+    }
+    
+    private void mapChunk(int chunkIndex) throws IOException {
+        long chunkBytes = (long) rowsPerChunk * dimensions * Float.BYTES;
+        MappedByteBuffer mapped = vectorChannel.map(FileChannel.MapMode.READ_WRITE, chunkIndex * chunkBytes, chunkBytes);
+        FloatBuffer[] extended = Arrays.copyOf(chunks, chunkIndex + 1);
+        extended[chunkIndex] = mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        chunks = extended;
+    }
+    
+    private void appendLog(Map<String, Object> entry) throws IOException {
+        logWriter.write(objectMapper.writeValueAsString(entry));
+        logWriter.newLine();
+    }
+    
+    private record Hit(int slot, float score) {}
+    
+    private record QuantizedRows(byte[] codes, float[] scales) {
+        
+        QuantizedRows ensureCapacity(int rows, int dimensions) {
+            if (rows <= scales.length) {
+                return this;
+            }
+            int capacity = Math.max(rows, scales.length * 2);
+            return new QuantizedRows(Arrays.copyOf(codes, capacity * dimensions), Arrays.copyOf(scales, capacity));
+        }
+    }
+    
+    private static final class StoredDocument {
+        
+        private final String id;
+        
+        private final String text;
+        
+        private final Map<String, Object> metadata;
+        
+        private volatile boolean deleted;
+        
+        StoredDocument(String id, String text, Map<String, Object> metadata) {
+            this.id = id;
+            this.text = text;
+            this.metadata = metadata != null ? new LinkedHashMap<>(metadata) : Map.of();
+        }
+    }
+}
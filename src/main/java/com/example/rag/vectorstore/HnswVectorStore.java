@@ -0,0 +1,441 @@
+package com.example.rag.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory vector store backed by a hierarchical navigable small world graph.
+ * Vectors are normalized on insert so cosine similarity is a plain dot product.
+ * <p>
+ * Inserts may run concurrently: each node's neighbor lists are immutable arrays that
+ * writers replace while holding the node's monitor, so searches never lock. Deleted
+ * documents stay in the graph as tombstones to keep it connected and are skipped in
+ * results; once they make up a quarter of the graph, it is rebuilt from the live nodes
+ * without embedding them again. Searches that cannot fill {@code topK} from the graph,
+ * because of a filter or of tombstones, fall back to an exact scan.
+ */
+public class HnswVectorStore implements LocalVectorStore {
+    
+    private static final Logger logger = LoggerFactory.getLogger(HnswVectorStore.class);
+    
+    private static final double MAX_TOMBSTONE_SHARE = 0.25;
+    
+    private final EmbeddingModel embeddingModel;
+    
+    private final int m;
+    
+    private final int maxNeighborsLayer0;
+    
+    private final int efConstruction;
+    
+    private final int efSearch;
+    
+    private final double levelMultiplier;
+    
+    // Writers share the read lock; a rebuild takes the write lock while searches keep using the old graph
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    
+    private volatile Graph graph = new Graph();
+    
+    public HnswVectorStore(EmbeddingModel embeddingModel, int m, int efConstruction, int efSearch) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW m must be at least 2, was " + m);
+        }
+        this.embeddingModel = embeddingModel;
+        this.m = m;
+        this.maxNeighborsLayer0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+    
+    @Override
+    public String getName() {
+        return "HnswVectorStore";
+    }
+    
+    @Override
+    public void add(List<Document> documents) {
+        List<float[]> embeddings = embeddingModel.embed(documents.stream().map(Document::getText).toList());
+        rebuildLock.readLock().lock();
+        try {
+            Graph current = graph;
+            for (int i = 0; i < documents.size(); i++) {
+                Document document = documents.get(i);
+                Node node = new Node(document, VectorMath.normalize(embeddings.get(i)), randomLevel());
+                insert(current, node);
+                current.markDeleted(current.nodesById.put(document.getId(), node));
+            }
+            logger.debug("Inserted {} documents, graph now holds {}", documents.size(), current.nodesById.size());
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        rebuildIfMostlyTombstones();
+    }
+    
+    @Override
+    public void delete(List<String> idList) {
+        rebuildLock.readLock().lock();
+        try {
+            Graph current = graph;
+            for (String id : idList) {
+                current.markDeleted(current.nodesById.remove(id));
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        rebuildIfMostlyTombstones();
+    }
+    
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        Predicate<Map<String, Object>> filter = MetadataFilters.compile(filterExpression);
+        delete(graph.nodesById.values().stream()
+                .filter(node -> filter.test(node.document.getMetadata()))
+                .map(node -> node.document.getId())
+                .toList());
+    }
+    
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        Graph current = graph;
+        Node entry = current.entryPoint;
+        if (entry == null) {
+            return List.of();
+        }
+        
+        float[] query = VectorMath.normalize(embeddingModel.embed(request.getQuery()));
+        Predicate<Map<String, Object>> filter = MetadataFilters.compile(request.getFilterExpression());
+        int topK = request.getTopK();
+        
+        for (int layer = entry.level; layer > 0; layer--) {
+            entry = greedyClosest(query, entry, layer);
+        }
+        
+        List<Candidate> matches = new ArrayList<>();
+        for (Candidate candidate : searchLayer(query, List.of(entry), Math.max(efSearch, topK), 0)) {
+            if (!candidate.node.deleted && filter.test(candidate.node.document.getMetadata())) {
+                matches.add(candidate);
+            }
+        }
+        
+        // Tombstones and filtered-out nodes can take the places of live matches among the candidates
+        if (matches.size() < topK && (request.hasFilterExpression() || matches.size() < current.nodesById.size())) {
+            matches = exactScan(current, query, filter);
+        }
+        
+        return matches.stream()
+                .sorted(Comparator.comparingDouble(Candidate::distance))
+                .filter(candidate -> 1 - candidate.distance >= request.getSimilarityThreshold())
+                .limit(topK)
+                .map(this::toResult)
+                .toList();
+    }
+    
+    @Override
+    public Set<String> documentIds() {
+        return Set.copyOf(graph.nodesById.keySet());
+    }
+    
+    @Override
+    public List<Document> documents() {
+        return graph.nodesById.values().stream()
+                .map(node -> node.document)
+                .toList();
+    }
+    
+    @Override
+    public int size() {
+        return graph.nodesById.size();
+    }
+    
+    /**
+     * Replaces the graph with one holding only the live nodes once tombstones make up more
+     * than {@link #MAX_TOMBSTONE_SHARE} of it. Writers wait for the rebuild; searches do not.
+     */
+    private void rebuildIfMostlyTombstones() {
+        if (!graph.needsRebuild()) {
+            return;
+        }
+        rebuildLock.writeLock().lock();
+        try {
+            Graph current = graph;
+            if (!current.needsRebuild()) {
+                return;
+            }
+            Graph rebuilt = new Graph();
+            for (Node live : current.nodesById.values()) {
+                Node node = new Node(live.document, live.vector, randomLevel());
+                insert(rebuilt, node);
+                rebuilt.nodesById.put(node.document.getId(), node);
+            }
+            graph = rebuilt;
+            logger.info("Rebuilt HNSW graph without its {} deleted nodes, {} remain", current.tombstones.get(), rebuilt.nodesById.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+    
+    private void insert(Graph target, Node node) {
+        target.nodes.incrementAndGet();
+        Node entry;
+        synchronized (target) {
+            entry = target.entryPoint;
+            if (entry == null) {
+                target.entryPoint = node;
+                return;
+            }
+        }
+        
+        for (int layer = entry.level; layer > node.level; layer--) {
+            entry = greedyClosest(node.vector, entry, layer);
+        }
+        
+        List<Node> entryPoints = List.of(entry);
+        for (int layer = Math.min(node.level, entry.level); layer >= 0; layer--) {
+            List<Candidate> candidates = searchLayer(node.vector, entryPoints, efConstruction, layer);
+            int maxNeighbors = layer == 0 ? maxNeighborsLayer0 : m;
+            List<Node> neighbors = selectNeighbors(candidates, m);
+            
+            synchronized (node) {
+                node.neighbors.set(layer, neighbors.toArray(Node[]::new));
+            }
+            for (Node neighbor : neighbors) {
+                link(neighbor, node, layer, maxNeighbors);
+            }
+            entryPoints = candidates.stream().map(Candidate::node).toList();
+        }
+        
+        synchronized (target) {
+            if (node.level > target.entryPoint.level) {
+                target.entryPoint = node;
+            }
+        }
+    }
+    
+    private void link(Node from, Node to, int layer, int maxNeighbors) {
+        synchronized (from) {
+            Node[] current = from.neighbors.get(layer);
+            if (current.length < maxNeighbors) {
+                Node[] extended = Arrays.copyOf(current, current.length + 1);
+                extended[current.length] = to;
+                from.neighbors.set(layer, extended);
+                return;
+            }
+            
+            // Over capacity: keep a diverse subset of the existing neighbors plus the new one
+            List<Candidate> candidates = new ArrayList<>(current.length + 1);
+            for (Node neighbor : current) {
+                candidates.add(new Candidate(neighbor, distance(from.vector, neighbor.vector)));
+            }
+            candidates.add(new Candidate(to, distance(from.vector, to.vector)));
+            candidates.sort(Comparator.comparingDouble(Candidate::distance));
+            from.neighbors.set(layer, selectNeighbors(candidates, maxNeighbors).toArray(Node[]::new));
+        }
+    }
+    
+    /**
+     * Neighbor selection heuristic from the HNSW paper: a candidate is kept only if it is
+     * closer to the base node than to every neighbor already kept, which preserves links
+     * towards other clusters. Remaining slots are filled with the closest pruned candidates.
+     * Expects candidates sorted by ascending distance.
+     */
+    private List<Node> selectNeighbors(List<Candidate> candidates, int maxNeighbors) {
+        List<Node> selected = new ArrayList<>(maxNeighbors);
+        List<Node> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= maxNeighbors) {
+                break;
+            }
+            boolean diverse = true;
+            for (Node kept : selected) {
+                if (distance(candidate.node.vector, kept.vector) < candidate.distance) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate.node);
+            } else {
+                pruned.add(candidate.node);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < maxNeighbors; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+    
+    private Node greedyClosest(float[] query, Node entry, int layer) {
+        Node current = entry;
+        float currentDistance = distance(query, current.vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (Node neighbor : current.neighborsAt(layer)) {
+                float neighborDistance = distance(query, neighbor.vector);
+                if (neighborDistance < currentDistance) {
+                    current = neighbor;
+                    currentDistance = neighborDistance;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Best-first search of one layer. Returns up to {@code ef} closest nodes sorted by
+     * ascending distance.
+     */
+    private List<Candidate> searchLayer(float[] query, List<Node> entryPoints, int ef, int layer) {
+        Set<Node> visited = new HashSet<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+        
+        for (Node entry : entryPoints) {
+            if (visited.add(entry)) {
+                Candidate candidate = new Candidate(entry, distance(query, entry.vector));
+                candidates.add(candidate);
+                results.add(candidate);
+                if (results.size() > ef) {
+                    results.poll();
+                }
+            }
+        }
+        
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.distance > results.peek().distance) {
+                break;
+            }
+            for (Node neighbor : closest.node.neighborsAt(layer)) {
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                float neighborDistance = distance(query, neighbor.vector);
+                if (results.size() < ef || neighborDistance < results.peek().distance) {
+                    Candidate candidate = new Candidate(neighbor, neighborDistance);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::distance));
+        return sorted;
+    }
+    
+    private List<Candidate> exactScan(Graph current, float[] query, Predicate<Map<String, Object>> filter) {
+        List<Candidate> matches = new ArrayList<>();
+        for (Node node : current.nodesById.values()) {
+            if (!node.deleted && filter.test(node.document.getMetadata())) {
+                matches.add(new Candidate(node, distance(query, node.vector)));
+            }
+        }
+        return matches;
+    }
+    
+    private Document toResult(Candidate candidate) {
+        Map<String, Object> metadata = new HashMap<>(candidate.node.document.getMetadata());
+        metadata.put("distance", candidate.distance);
+        return Document.builder()
+                .id(candidate.node.document.getId())
+                .text(candidate.node.document.getText())
+                .metadata(metadata)
+                .score(1.0 - candidate.distance)
+                .build();
+    }
+    
+    private int randomLevel() {
+        double uniform = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+    
+    private static float distance(float[] a, float[] b) {
+        return 1 - VectorMath.dot(a, b);
+    }
+    
+    private record Candidate(Node node, float distance) {}
+    
+    /**
+     * The nodes reachable from one entry point, live or deleted, and the live ones by ID.
+     * Its monitor guards the entry point.
+     */
+    private static final class Graph {
+        
+        private final Map<String, Node> nodesById = new ConcurrentHashMap<>();
+        
+        private final AtomicInteger nodes = new AtomicInteger();
+        
+        private final AtomicInteger tombstones = new AtomicInteger();
+        
+        private volatile Node entryPoint;
+        
+        void markDeleted(Node node) {
+            if (node != null) {
+                node.deleted = true;
+                tombstones.incrementAndGet();
+            }
+        }
+        
+        boolean needsRebuild() {
+            return tombstones.get() > MAX_TOMBSTONE_SHARE * nodes.get();
+        }
+    }
+    
+    private static final class Node {
+        
+        private static final Node[] NO_NEIGHBORS = new Node[0];
+        
+        private final Document document;
+        
+        private final float[] vector;
+        
+        private final int level;
+        
+        // One immutable array per layer; writers replace it while holding this node's monitor
+        private final AtomicReferenceArray<Node[]> neighbors;
+        
+        private volatile boolean deleted;
+        
+        Node(Document document, float[] vector, int level) {
+            this.document = document;
+            this.vector = vector;
+            this.level = level;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int layer = 0; layer <= level; layer++) {
+                this.neighbors.set(layer, NO_NEIGHBORS);
+            }
+        }
+        
+        Node[] neighborsAt(int layer) {
+            return layer > level ? NO_NEIGHBORS : neighbors.get(layer);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.rag.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A vector store that runs inside the application and can therefore list its own
+ * contents cheaply; ingestion uses this list as its manifest.
+ */
+public interface LocalVectorStore extends VectorStore {
+    
+    Set<String> documentIds();
+    
+    /**
+     * The stored documents with their text and metadata.
+     */
+    List<Document> documents();
+    
+    int size();
+}
@@ -0,0 +1,109 @@
+package com.example.rag.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Compiles Spring AI filter expressions into predicates over document metadata, for the
+ * in-process vector stores. The expression tree is walked once per search rather than
+ * once per candidate. Numeric comparisons also match numbers stored as strings.
+ */
+public final class MetadataFilters {
+    
+    private MetadataFilters() {
+    }
+    
+    public static Predicate<Map<String, Object>> compile(Filter.Expression expression) {
+        if (expression == null) {
+            return metadata -> true;
+        }
+        
+        return switch (expression.type()) {
+            case AND -> compileOperand(expression.left()).and(compileOperand(expression.right()));
+            case OR -> compileOperand(expression.left()).or(compileOperand(expression.right()));
+            case NOT -> compileOperand(expression.left()).negate();
+            case EQ -> comparison(expression, value -> value == 0);
+            case NE -> comparison(expression, value -> value != 0).or(missing(expression));
+            case GT -> comparison(expression, value -> value > 0);
+            case GTE -> comparison(expression, value -> value >= 0);
+            case LT -> comparison(expression, value -> value < 0);
+            case LTE -> comparison(expression, value -> value <= 0);
+            case IN -> membership(expression);
+            case NIN -> membership(expression).negate();
+        };
+    }
+    
+    private static Predicate<Map<String, Object>> compileOperand(Filter.Operand operand) {
+        if (operand instanceof Filter.Group group) {
+            return compile(group.content());
+        }
+        if (operand instanceof Filter.Expression expression) {
+            return compile(expression);
+        }
+        throw new IllegalArgumentException("Unsupported filter operand: " + operand);
+    }
+    
+    private static Predicate<Map<String, Object>> comparison(Filter.Expression expression, IntPredicate outcome) {
+        String key = key(expression);
+        Object expected = ((Filter.Value) expression.right()).value();
+        return metadata -> {
+            Object actual = metadata.get(key);
+            return actual != null && outcome.test(compare(actual, expected));
+        };
+    }
+    
+    private static Predicate<Map<String, Object>> missing(Filter.Expression expression) {
+        String key = key(expression);
+        return metadata -> metadata.get(key) == null;
+    }
+    
+    private static Predicate<Map<String, Object>> membership(Filter.Expression expression) {
+        String key = key(expression);
+        Object values = ((Filter.Value) expression.right()).value();
+        List<?> candidates = values instanceof Collection<?> collection ? List.copyOf(collection) : List.of(values);
+        return metadata -> {
+            Object actual = metadata.get(key);
+            return actual != null && candidates.stream().anyMatch(candidate -> compare(actual, candidate) == 0);
+        };
+    }
+    
+    private static String key(Filter.Expression expression) {
+        String key = ((Filter.Key) expression.left()).key();
+        if (key.length() > 1 && (key.startsWith("'") || key.startsWith("\"")) && key.charAt(key.length() - 1) == key.charAt(0)) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+    
+    private static int compare(Object actual, Object expected) {
+        Double actualNumber = asNumber(actual);
+        Double expectedNumber = asNumber(expected);
+        if (actualNumber != null && expectedNumber != null) {
+            return Double.compare(actualNumber, expectedNumber);
+        }
+        return Objects.toString(actual).compareTo(Objects.toString(expected));
+    }
+    
+    private static Double asNumber(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            char first = text.charAt(0);
+            if (Character.isDigit(first) || first == '-' || first == '+' || first == '.') {
+                try {
+                    return Double.parseDouble(text);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
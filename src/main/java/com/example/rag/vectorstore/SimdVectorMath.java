@@ -0,0 +1,56 @@
+package com.example.rag.vectorstore;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels. Only loaded when the {@code jdk.incubator.vector} module is
+ * present; see {@link VectorMath}.
+ */
+final class SimdVectorMath {
+    
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    
+    // Eight int8 codes widen into eight float lanes
+    private static final VectorSpecies<Byte> CODE_SPECIES = ByteVector.SPECIES_64;
+    
+    private static final VectorSpecies<Float> WIDENED_SPECIES = FloatVector.SPECIES_256;
+    
+    private SimdVectorMath() {
+    }
+    
+    static float dot(float[] a, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(SPECIES, a, i);
+            FloatVector y = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[i] * b[bOffset + i];
+        }
+        return result;
+    }
+    
+    static float dot(float[] a, byte[] codes, int codesOffset, int length) {
+        FloatVector sum = FloatVector.zero(WIDENED_SPECIES);
+        int i = 0;
+        int bound = CODE_SPECIES.loopBound(length);
+        for (; i < bound; i += CODE_SPECIES.length()) {
+            FloatVector x = FloatVector.fromArray(WIDENED_SPECIES, a, i);
+            FloatVector y = (FloatVector) ByteVector.fromArray(CODE_SPECIES, codes, codesOffset + i)
+                    .convertShape(VectorOperators.B2F, WIDENED_SPECIES, 0);
+            sum = x.fma(y, sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[i] * codes[codesOffset + i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.rag.vectorstore;
+
+final class VectorMath {
+    
+    static final boolean SIMD_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    
+    private VectorMath() {
+    }
+    
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float component : vector) {
+            norm += component * component;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+    
+    static float dot(float[] a, float[] b) {
+        return dot(a, b, 0, a.length);
+    }
+    
+    /**
+     * Dot product of {@code a} with the {@code length} floats of {@code b} starting at
+     * {@code bOffset}, using SIMD lanes when the Vector API is available.
+     */
+    static float dot(float[] a, float[] b, int bOffset, int length) {
+        if (SIMD_AVAILABLE) {
+            return SimdVectorMath.dot(a, b, bOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[bOffset + i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Dot product of {@code a} with {@code length} int8 codes starting at {@code codesOffset};
+     * the caller multiplies in the per-vector scale.
+     */
+    static float dot(float[] a, byte[] codes, int codesOffset, int length) {
+        if (SIMD_AVAILABLE) {
+            return SimdVectorMath.dot(a, codes, codesOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * codes[codesOffset + i];
+        }
+        return sum;
+    }
+    
+    /**
+     * Scalar int8 quantization of a normalized vector with a per-vector scale: writes the
+     * codes into {@code codes} at {@code codesOffset} and returns the scale, so that
+     * {@code vector[i] ~= codes[i] * scale}.
+     */
+    static float quantize(float[] vector, byte[] codes, int codesOffset) {
+        float maxAbs = 0;
+        for (float component : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(component));
+        }
+        if (maxAbs == 0) {
+            return 0;
+        }
+        float scale = maxAbs / 127;
+        for (int i = 0; i < vector.length; i++) {
+            codes[codesOffset + i] = (byte) Math.round(vector[i] / scale);
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.rag.vectorstore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore;
+import org.springframework.ai.vectorstore.redis.RedisVectorStore.MetadataField;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.InitializingBean;
+import redis.clients.jedis.AbstractTransaction;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.json.Path2;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Redis vector store kept in numbered index versions, {@code <indexName>-v<n>} over the
+ * keys {@code rag:embedding-v<n>:} for the unversioned prefix {@code rag:embedding:}, of
+ * which one is live at a time. Version keys never start with the unversioned prefix, so
+ * an index left over from an earlier release does not pick them up. Searches go through
+ * a Redis index alias pointing at the live version, so switching versions is a single
+ * atomic {@code FT.ALIASUPDATE} that every application instance sees at once; writes
+ * through the {@link VectorStore} methods go to the live version.
+ * <p>
+ * A rebuild fills a new version next to the live one, switches the alias once it is
+ * complete and then drops the old version with its keys. The live, building and last
+ * allocated version numbers are kept under {@code <stateKey>:*}.
+ */
+public class VersionedRedisVectorStore implements VectorStore, InitializingBean {
+    
+    private static final Logger logger = LoggerFactory.getLogger(VersionedRedisVectorStore.class);
+    
+    /** The first versioned index; earlier releases used a single unversioned index. */
+    public static final int FIRST_VERSION = 2;
+    
+    // Searching through the alias yields ids as "v<n>:<id>", relative to "<prefix>-"
+    private static final Pattern VERSION_SEGMENT = Pattern.compile("^v\\d+:");
+    
+    // Field holding the document text in the JSON written by RedisVectorStore
+    private static final String CONTENT_FIELD = "content";
+    
+    private final JedisPooled jedis;
+    
+    private final EmbeddingModel embeddingModel;
+    
+    private final String indexName;
+    
+    // The unversioned prefix without its trailing colon
+    private final String keyBase;
+    
+    private final String alias;
+    
+    private final String stateKey;
+    
+    private final List<MetadataField> metadataFields;
+    
+    private final RedisVectorStore aliasStore;
+    
+    private final Map<Integer, RedisVectorStore> versions = new ConcurrentHashMap<>();
+    
+    public VersionedRedisVectorStore(JedisPooled jedis, EmbeddingModel embeddingModel, String indexName, String prefix,
+                                     String alias, String stateKey, List<MetadataField> metadataFields) {
+        this.jedis = jedis;
+        this.embeddingModel = embeddingModel;
+        this.indexName = indexName;
+        this.keyBase = prefix.endsWith(":") ? prefix.substring(0, prefix.length() - 1) : prefix;
+        this.alias = alias;
+        this.stateKey = stateKey;
+        this.metadataFields = List.copyOf(metadataFields);
+        this.aliasStore = RedisVectorStore.builder(jedis, embeddingModel)
+                .indexName(alias)
+                .prefix(keyBase + "-")
+                .metadataFields(this.metadataFields)
+                .initializeSchema(false)
+                .build();
+    }
+    
+    /**
+     * Makes sure the live version exists and the alias points at it, starting with
+     * {@link #FIRST_VERSION} on a fresh Redis.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        jedis.setnx(liveKey(), String.valueOf(FIRST_VERSION));
+        jedis.setnx(lastKey(), String.valueOf(FIRST_VERSION));
+        int live = liveVersion();
+        version(live);
+        try {
+            jedis.ftAliasAdd(alias, indexName(live));
+        } catch (Exception e) {
+            // The alias exists already; it is only ever moved by switchTo
+            logger.debug("Alias {} not added: {}", alias, e.getMessage());
+        }
+        if (jedis.ftList().contains(indexName)) {
+            logger.warn("Unversioned index {} from an earlier release is no longer searched; drop it with FT.DROPINDEX {} DD",
+                    indexName, indexName);
+        }
+        logger.info("Searching {} through alias {}", indexName(live), alias);
+    }
+    
+    @Override
+    public String getName() {
+        return alias;
+    }
+    
+    public String indexName(int version) {
+        return indexName + "-v" + version;
+    }
+    
+    public int liveVersion() {
+        String live = jedis.get(liveKey());
+        return live != null ? Integer.parseInt(live) : FIRST_VERSION;
+    }
+    
+    /**
+     * The version a rebuild is filling, if one was started and not yet switched to.
+     */
+    public OptionalInt buildingVersion() {
+        String building = jedis.get(buildingKey());
+        return building != null ? OptionalInt.of(Integer.parseInt(building)) : OptionalInt.empty();
+    }
+    
+    /**
+     * Returns the version an interrupted rebuild left behind, so that it is continued, or
+     * else allocates a new version number and creates its index.
+     */
+    public int startBuild() {
+        OptionalInt building = buildingVersion();
+        int version;
+        if (building.isPresent() && building.getAsInt() != liveVersion()) {
+            version = building.getAsInt();
+            logger.info("Continuing the build of {}", indexName(version));
+        } else {
+            version = (int) jedis.incr(lastKey());
+            jedis.set(buildingKey(), String.valueOf(version));
+            logger.info("Building {} next to live {}", indexName(version), indexName(liveVersion()));
+        }
+        version(version);
+        return version;
+    }
+    
+    /**
+     * The store writing to and searching the given version directly; its index is created
+     * on first use.
+     */
+    public VectorStore version(int version) {
+        return versions.computeIfAbsent(version, v -> {
+            RedisVectorStore store = RedisVectorStore.builder(jedis, embeddingModel)
+                    .indexName(indexName(v))
+                    .prefix(versionPrefix(v))
+                    .metadataFields(metadataFields)
+                    .initializeSchema(true)
+                    .build();
+            store.afterPropertiesSet();
+            return store;
+        });
+    }
+    
+    /**
+     * Copies stored documents, embeddings included, from one version to another without
+     * re-embedding them. The copies are indexed by the target version as they are written.
+     */
+    public void copy(int fromVersion, int toVersion, Collection<String> ids) {
+        String from = versionPrefix(fromVersion);
+        String to = versionPrefix(toVersion);
+        try (Pipeline pipeline = jedis.pipelined()) {
+            for (String id : ids) {
+                pipeline.copy(from + id, to + id, true);
+            }
+            pipeline.sync();
+        }
+    }
+    
+    /**
+     * Number of documents the version's index holds.
+     */
+    public long documentCount(int version) {
+        Object count = jedis.ftInfo(indexName(version)).get("num_docs");
+        return count != null ? Long.parseLong(String.valueOf(count)) : 0;
+    }
+    
+    /**
+     * Reads the documents a version holds, with their text and the given metadata keys but
+     * without their embeddings.
+     */
+    public List<Document> documents(int version, Collection<String> metadataKeys) {
+        String versionPrefix = versionPrefix(version);
+        List<String> keys = new ArrayList<>();
+        ScanParams params = new ScanParams().match(versionPrefix + "*").count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> page = jedis.scan(cursor, params);
+            keys.addAll(page.getResult());
+            cursor = page.getCursor();
+        } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+        
+        Path2[] paths = Stream.concat(Stream.of(CONTENT_FIELD), metadataKeys.stream())
+                .map(field -> Path2.of("$." + field))
+                .toArray(Path2[]::new);
+        List<Response<Object>> responses = new ArrayList<>(keys.size());
+        try (Pipeline pipeline = jedis.pipelined()) {
+            for (String key : keys) {
+                responses.add(pipeline.jsonGet(key, paths));
+            }
+            pipeline.sync();
+        }
+        
+        List<Document> documents = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            // With several paths, JSON.GET answers an object of one array of matches per path
+            if (!(responses.get(i).get() instanceof JSONObject fields)) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>();
+            for (String key : metadataKeys) {
+                JSONArray values = fields.optJSONArray("$." + key);
+                if (values != null && !values.isEmpty() && !values.isNull(0)) {
+                    metadata.put(key, values.get(0));
+                }
+            }
+            JSONArray content = fields.optJSONArray("$." + CONTENT_FIELD);
+            documents.add(Document.builder()
+                    .id(keys.get(i).substring(versionPrefix.length()))
+                    .text(content != null && !content.isEmpty() ? content.optString(0) : "")
+                    .metadata(metadata)
+                    .build());
+        }
+        return documents;
+    }
+    
+    /**
+     * Points the alias and the live version at the given version in one transaction, so
+     * searches move over at once.
+     */
+    public void switchTo(int version) {
+        try (AbstractTransaction transaction = jedis.multi()) {
+            transaction.ftAliasUpdate(alias, indexName(version));
+            transaction.set(liveKey(), String.valueOf(version));
+            transaction.del(buildingKey());
+            transaction.exec();
+        }
+        logger.info("Alias {} now points at {}", alias, indexName(version));
+    }
+    
+    /**
+     * Drops the version's index together with all of its keys.
+     */
+    public void drop(int version) {
+        try {
+            jedis.ftDropIndexDD(indexName(version));
+            logger.info("Dropped {} and its documents", indexName(version));
+        } catch (Exception e) {
+            logger.warn("Could not drop {}: {}", indexName(version), e.getMessage());
+        }
+        versions.remove(version);
+    }
+    
+    @Override
+    public void add(List<Document> documents) {
+        version(liveVersion()).add(documents);
+    }
+    
+    @Override
+    public void delete(List<String> idList) {
+        version(liveVersion()).delete(idList);
+    }
+    
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        version(liveVersion()).delete(filterExpression);
+    }
+    
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return aliasStore.similaritySearch(request).stream()
+                .map(document -> Document.builder()
+                        .id(VERSION_SEGMENT.matcher(document.getId()).replaceFirst(""))
+                        .text(document.getText())
+                        .metadata(document.getMetadata())
+                        .score(document.getScore())
+                        .build())
+                .toList();
+    }
+    
+    private String versionPrefix(int version) {
+        return keyBase + "-v" + version + ":";
+    }
+    
+    private String liveKey() {
+        return stateKey + ":live-version";
+    }
+    
+    private String buildingKey() {
+        return stateKey + ":building-version";
+    }
+    
+    private String lastKey() {
+        return stateKey + ":last-version";
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.rag;
+
+import com.example.rag.model.BatchResult;
+import com.example.rag.model.ResultFields;
+import com.example.rag.service.BatchQueryService;
+import com.example.rag.service.RagService;
+import com.example.rag.service.VectorStoreService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchQueryServiceTest {
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @Mock
+    private RagService ragService;
+
+    @InjectMocks
+    private BatchQueryService batchQueryService;
+
+    private ExecutorService outboundExecutor;
+
+    @BeforeEach
+    void setUp() {
+        outboundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        ReflectionTestUtils.setField(batchQueryService, "outboundExecutor", outboundExecutor);
+        ReflectionTestUtils.setField(batchQueryService, "maxConcurrentSearches", 16);
+        ReflectionTestUtils.setField(batchQueryService, "maxConcurrentAsks", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboundExecutor.close();
+    }
+
+    @Test
+    void testSearchBatchEmbedsOnceAndIsolatesFailures() {
+        // Arrange
+        List<String> queries = List.of("revenues", "expenditures", "broken");
+        when(vectorStoreService.searchSimilarDocuments(anyString(), eq(5), eq(0.75)))
+                .thenAnswer(invocation -> {
+                    String query = invocation.getArgument(0);
+                    if (query.equals("broken")) {
+                        throw new IllegalStateException("Vector store unavailable");
+                    }
+                    return List.of(new Document(query + " row", Map.of("year", "2007/08")));
+                });
+
+        // Act
+        List<BatchResult> results = batchQueryService.searchBatch(queries, 5, 0.75, null, ResultFields.ALL)
+                .collectList()
+                .block();
+
+        // Assert
+        verify(vectorStoreService).embedQueries(queries);
+        assertEquals(3, results.size());
+        List<BatchResult> byIndex = results.stream()
+                .sorted(Comparator.comparingInt(BatchResult::index))
+                .toList();
+        assertEquals("success", byIndex.get(0).status());
+        assertEquals("revenues", byIndex.get(0).query());
+        assertEquals(1, byIndex.get(0).totalResults());
+        assertEquals("revenues row", byIndex.get(0).results().get(0).content());
+        assertEquals("success", byIndex.get(1).status());
+        assertEquals("error", byIndex.get(2).status());
+        assertEquals("Vector store unavailable", byIndex.get(2).message());
+    }
+
+    @Test
+    void testAskBatchBoundsConcurrentAnswers() {
+        // Arrange
+        ReflectionTestUtils.setField(batchQueryService, "maxConcurrentAsks", 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(ragService.generateResponse(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return "Answer to " + invocation.getArgument(0);
+        });
+        List<String> prompts = List.of("q1", "q2", "q3", "q4", "q5", "q6");
+
+        // Act
+        List<BatchResult> results = batchQueryService.askBatch(prompts).collectList().block();
+
+        // Assert
+        assertEquals(6, results.size());
+        assertTrue(results.stream().allMatch(result -> result.response().equals("Answer to " + result.query())));
+        assertTrue(maxInFlight.get() <= 2);
+    }
+}
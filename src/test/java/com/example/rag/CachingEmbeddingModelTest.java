@@ -0,0 +1,121 @@
+package com.example.rag;
+
+import com.example.rag.embedding.CachingEmbeddingModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingEmbeddingModelTest {
+
+    @Mock
+    private EmbeddingModel delegate;
+
+    @TempDir
+    private Path cacheDirectory;
+
+    private void stubDelegate() {
+        when(delegate.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            EmbeddingRequest request = invocation.getArgument(0);
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                String text = request.getInstructions().get(i);
+                embeddings.add(new Embedding(new float[] {text.length(), text.hashCode()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        });
+    }
+
+    @Test
+    void testOnlyMissingTextsAreSentToDelegate() {
+        // Arrange
+        stubDelegate();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "test-model", 100, null, 0);
+        model.embed("revenues");
+
+        // Act
+        List<float[]> vectors = model.embed(List.of("revenues", "expenditures", "expenditures"));
+
+        // Assert
+        assertEquals(3, vectors.size());
+        assertArrayEquals(new float[] {"revenues".length(), "revenues".hashCode()}, vectors.get(0));
+        assertArrayEquals(vectors.get(1), vectors.get(2));
+        assertEquals(1, model.getMemoryHits());
+        assertEquals(2, model.getMisses());
+        verify(delegate, times(1)).call(argThat(request -> request.getInstructions().equals(List.of("expenditures"))));
+    }
+
+    @Test
+    void testDiskTierSurvivesNewInstance() {
+        // Arrange
+        stubDelegate();
+        new CachingEmbeddingModel(delegate, "test-model", 100, cacheDirectory, 100).embed("revenues");
+        CachingEmbeddingModel restarted = new CachingEmbeddingModel(delegate, "test-model", 100, cacheDirectory, 100);
+
+        // Act
+        float[] vector = restarted.embed("revenues");
+
+        // Assert
+        assertArrayEquals(new float[] {"revenues".length(), "revenues".hashCode()}, vector);
+        assertEquals(1, restarted.getDiskHits());
+        assertEquals(0, restarted.getMisses());
+        assertEquals(1, restarted.getDiskEntries());
+        verify(delegate, times(1)).call(any(EmbeddingRequest.class));
+    }
+
+    @Test
+    void testMemoryTierIsBounded() {
+        // Arrange
+        stubDelegate();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "test-model", 2, null, 0);
+
+        // Act
+        model.embed(List.of("a", "b", "c"));
+        model.embed("a");
+
+        // Assert
+        assertEquals(2, model.getMemoryEntries());
+        assertEquals(4, model.getMisses());
+    }
+
+    @Test
+    void testDiskTierEvictsOldestEntries() throws Exception {
+        // Arrange
+        stubDelegate();
+        CachingEmbeddingModel model = new CachingEmbeddingModel(delegate, "test-model", 100, cacheDirectory, 2);
+        model.embed("a");
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            Files.setLastModifiedTime(files.findFirst().orElseThrow(), FileTime.fromMillis(0));
+        }
+        model.embed("b");
+
+        // Act
+        model.embed("c");
+        CachingEmbeddingModel restarted = new CachingEmbeddingModel(delegate, "test-model", 100, cacheDirectory, 2);
+        restarted.embed(List.of("b", "c"));
+        restarted.embed("a");
+
+        // Assert
+        assertEquals(2, model.getDiskEntries());
+        assertEquals(2, restarted.getDiskHits());
+        assertEquals(1, restarted.getMisses());
+        assertEquals(2, restarted.getDiskEntries());
+    }
+}
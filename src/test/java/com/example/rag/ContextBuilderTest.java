@@ -0,0 +1,89 @@
+package com.example.rag;
+
+import com.example.rag.service.ContextBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextBuilderTest {
+
+    private final ContextBuilder contextBuilder = new ContextBuilder();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(contextBuilder, "maxTokens", 1500);
+        ReflectionTestUtils.setField(contextBuilder, "mmrLambda", 0.7);
+        ReflectionTestUtils.setField(contextBuilder, "duplicateThreshold", 0.9);
+    }
+
+    private static Document row(String indicator, String year, String value, double score) {
+        return row(indicator, "Annual % Change", year, value, score);
+    }
+
+    private static Document row(String indicator, String units, String year, String value, double score) {
+        return Document.builder()
+                .text("In " + year + ", " + indicator + " was " + value + " " + units)
+                .metadata(Map.of("indicator", indicator, "units", units, "year", year, "value", value))
+                .score(score)
+                .build();
+    }
+
+    @Test
+    void testBuildGroupsRowsPerIndicatorAndDropsDuplicates() {
+        // Arrange
+        List<Document> documents = List.of(
+                row("Revenues", "2008/09", "18.1", 0.91),
+                row("Revenues", "2007/08", "22.7", 0.90),
+                row("Revenues", "2007/08", "22.7", 0.89),
+                row("Expenditures", "2007/08", "12.4", 0.80));
+
+        // Act
+        String context = contextBuilder.build(documents);
+
+        // Assert
+        assertEquals("""
+                Expenditures (Annual % Change): 2007/08 12.4
+                Revenues (Annual % Change): 2007/08 22.7; 2008/09 18.1""", context);
+    }
+
+    @Test
+    void testBuildKeepsRowsThatDifferInUnitsOrValue() {
+        // Arrange
+        List<Document> documents = List.of(
+                row("Revenues", "2007/08", "22.7", 0.91),
+                row("Revenues", "2007/08", "23.1", 0.90),
+                row("Revenues", "Millions", "2007/08", "41562", 0.89));
+
+        // Act
+        String context = contextBuilder.build(documents);
+
+        // Assert
+        assertEquals("""
+                Revenues (Annual % Change): 2007/08 22.7, 23.1
+                Revenues (Millions): 2007/08 41562""", context);
+    }
+
+    @Test
+    void testBuildStaysWithinTokenBudget() {
+        // Arrange
+        ReflectionTestUtils.setField(contextBuilder, "maxTokens", 20);
+        List<Document> documents = List.of(
+                row("Revenues", "2007/08", "22.7", 0.9),
+                row("Expenditures", "2007/08", "12.4", 0.8),
+                row("Per Capita Outstanding Debt", "2011/12", "19488", 0.7),
+                new Document("A long free-text note that does not fit into what is left of the budget at all", Map.of()));
+
+        // Act
+        String context = contextBuilder.build(documents);
+
+        // Assert
+        assertTrue(context.contains("Revenues (Annual % Change): 2007/08 22.7"));
+        assertFalse(context.contains("free-text note"));
+    }
+}
@@ -1,23 +1,47 @@
 package com.example.rag;
 
+import com.example.rag.metrics.RagMetrics;
 import com.example.rag.model.MacroeconomicIndicator;
 import com.example.rag.service.CsvProcessingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
 class CsvProcessingServiceTest {
 
+    @Spy
+    private RagMetrics ragMetrics = new RagMetrics();
+
     @InjectMocks
     private CsvProcessingService csvProcessingService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(csvProcessingService, "readBufferSize", 65536);
+    }
+
     @Test
     void testFilterValidData() {
         // Arrange
@@ -46,4 +70,42 @@ class CsvProcessingServiceTest {
             assertFalse(data.isEmpty());
         });
     }
+
+    @Test
+    void testStreamValidDataFromGzipFile(@TempDir Path tempDir) throws IOException {
+        // Arrange
+        Path csvFile = tempDir.resolve("indicators.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(csvFile));
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("Indicators,Units,Year,Value\n");
+            writer.write("Revenues,\"Annual %\nChange\",2007/08,22.7\n");
+            writer.write("Capital Expenditure,Annual % Change,2007/08,-\n");
+            writer.write("Total Government Expenditures,Annual % Change,2008/09,20.8\n");
+        }
+
+        // Act
+        List<MacroeconomicIndicator> validData;
+        try (Stream<MacroeconomicIndicator> rows = csvProcessingService.streamValidData(csvFile.toString())) {
+            validData = rows.toList();
+        }
+
+        // Assert
+        assertEquals(2, validData.size());
+        assertEquals("Revenues", validData.get(0).getIndicators());
+        assertEquals("Annual %\nChange", validData.get(0).getUnits());
+        assertEquals("2008/09", validData.get(1).getYear());
+    }
+
+    @Test
+    void testStreamDataFromClasspathMatchesLoad() {
+        // Act
+        List<MacroeconomicIndicator> loaded = csvProcessingService.loadDataFromCsv("macroeconimic-indicator-2007-2017-by-monetary-sector.csv");
+        long streamed;
+        try (Stream<MacroeconomicIndicator> rows = csvProcessingService.streamDataFromCsv("macroeconimic-indicator-2007-2017-by-monetary-sector.csv")) {
+            streamed = rows.count();
+        }
+
+        // Assert
+        assertEquals(loaded.size(), streamed);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.example.rag;
+
+import com.example.rag.service.DownstreamBusyException;
+import com.example.rag.service.DownstreamLimiter;
+import com.example.rag.service.DownstreamLimiter.Downstream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownstreamLimiterTest {
+
+    private final DownstreamLimiter downstreamLimiter = new DownstreamLimiter();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(downstreamLimiter, "chatMaxConcurrent", 2);
+        ReflectionTestUtils.setField(downstreamLimiter, "externalLlmMaxConcurrent", 0);
+        ReflectionTestUtils.setField(downstreamLimiter, "acquireTimeoutMs", 50L);
+        ReflectionTestUtils.invokeMethod(downstreamLimiter, "initialize");
+    }
+
+    @Test
+    void testConcurrentCallsAreCappedPerDownstream() throws Exception {
+        // Arrange
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = executor.submit(() -> downstreamLimiter.run(Downstream.CHAT, () -> hold(running, maxRunning, release)));
+            Future<?> second = executor.submit(() -> downstreamLimiter.run(Downstream.CHAT, () -> hold(running, maxRunning, release)));
+            while (downstreamLimiter.inFlight(Downstream.CHAT) < 2) {
+                Thread.onSpinWait();
+            }
+
+            // Assert
+            assertThrows(DownstreamBusyException.class, () -> downstreamLimiter.call(Downstream.CHAT, () -> "third"));
+            assertEquals("unlimited", downstreamLimiter.call(Downstream.EXTERNAL_LLM, () -> "unlimited"));
+            release.countDown();
+            first.get();
+            second.get();
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, downstreamLimiter.inFlight(Downstream.CHAT));
+    }
+
+    private static void hold(AtomicInteger running, AtomicInteger maxRunning, CountDownLatch release) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+    }
+}
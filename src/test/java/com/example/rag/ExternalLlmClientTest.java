@@ -0,0 +1,137 @@
+package com.example.rag;
+
+import com.example.rag.client.ExternalLlmClient;
+import com.example.rag.client.ExternalLlmException;
+import com.example.rag.client.ExternalLlmRequest;
+import com.example.rag.client.ExternalLlmResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalLlmClientTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final ExternalLlmRequest request = new ExternalLlmRequest("What were Revenues?", "context", "system");
+
+    private volatile int slowRequest = -1;
+
+    private volatile String lastBody;
+
+    private HttpServer server;
+
+    private ExternalLlmClient client;
+
+    private URI uri;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/generate", this::handle);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/generate");
+
+        client = new ExternalLlmClient();
+        ReflectionTestUtils.setField(client, "outboundExecutor", executor);
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(client, "requestTimeoutMs", 500L);
+        ReflectionTestUtils.setField(client, "maxConcurrentPerHost", 32);
+        ReflectionTestUtils.setField(client, "httpVersion", HttpClient.Version.HTTP_2);
+        ReflectionTestUtils.setField(client, "hedgingMinSamples", 20);
+        ReflectionTestUtils.setField(client, "hedgingMinDelayMs", 50L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testTypedRequestAndResponse() {
+        // Arrange
+        ReflectionTestUtils.invokeMethod(client, "initialize");
+
+        // Act
+        ExternalLlmResponse response = client.generate(uri, request);
+
+        // Assert
+        assertEquals("answer-1", response.response());
+        assertTrue(lastBody.contains("\"system_message\":\"system\""));
+    }
+
+    @Test
+    void testSlowAttemptTimesOut() {
+        // Arrange
+        ReflectionTestUtils.invokeMethod(client, "initialize");
+        slowRequest = 1;
+
+        // Act & Assert
+        ExternalLlmException error = assertThrows(ExternalLlmException.class, () -> client.generate(uri, request));
+        assertTrue(error.getMessage().contains("500 ms"));
+    }
+
+    @Test
+    void testHedgedRequestAnswersWhenFirstAttemptExceedsP95() {
+        // Arrange
+        ReflectionTestUtils.setField(client, "hedgingEnabled", true);
+        ReflectionTestUtils.setField(client, "hedgingMinSamples", 5);
+        ReflectionTestUtils.setField(client, "requestTimeoutMs", 5000L);
+        ReflectionTestUtils.invokeMethod(client, "initialize");
+        for (int i = 0; i < 5; i++) {
+            client.generate(uri, request);
+        }
+        slowRequest = 6;
+
+        // Act
+        long start = System.nanoTime();
+        ExternalLlmResponse response = client.generateAsync(uri, request).join();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Assert
+        assertTrue(client.p95LatencyMs(uri) >= 0);
+        assertEquals(-1, client.p95LatencyMs(URI.create("http://localhost:" + server.getAddress().getPort() + "/generate")));
+        assertEquals("answer-7", response.response());
+        assertTrue(elapsedMs < 2000, "hedged request took " + elapsedMs + " ms");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int number = requests.incrementAndGet();
+        lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (number == slowRequest) {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] body = ("{\"response\":\"answer-" + number + "\",\"model\":\"test\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            // Client already gave up on this attempt
+        }
+        exchange.close();
+    }
+}
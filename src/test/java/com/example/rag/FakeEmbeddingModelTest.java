@@ -0,0 +1,34 @@
+package com.example.rag;
+
+import com.example.rag.loadtest.FakeEmbeddingModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FakeEmbeddingModelTest {
+
+    private final FakeEmbeddingModel embeddingModel = new FakeEmbeddingModel(384, 0, 0);
+
+    @Test
+    void testVectorsAreDeterministicAndRankByWordOverlap() {
+        // Act
+        float[] query = embeddingModel.embed("Revenues 2008/09");
+        float[] again = embeddingModel.embed("Revenues 2008/09");
+        float[] matching = embeddingModel.embed("In 2008/09, Revenues was 33.3 Annual % Change");
+        float[] unrelated = embeddingModel.embed("Broad Money");
+
+        // Assert
+        assertArrayEquals(query, again);
+        assertEquals(1.0, dot(query, query), 1e-5);
+        assertTrue(dot(query, matching) > 0.75);
+        assertEquals(2.0 / 3, dot(query, unrelated), 1e-5);
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.rag;
+
+import com.example.rag.vectorstore.FlatVectorStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class FlatVectorStoreTest {
+
+    private static final int DIMENSIONS = 37;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @TempDir
+    private Path directory;
+
+    private final Map<String, float[]> vectors = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            vectors.put("doc-" + i, randomVector(random));
+        }
+        for (int i = 0; i < 10; i++) {
+            vectors.put("query-" + i, randomVector(random));
+        }
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> vectors.get(invocation.<String>getArgument(0)));
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+                .map(vectors::get)
+                .toList());
+    }
+
+    @Test
+    void testSearchReturnsExactTopK() throws Exception {
+        // Arrange
+        try (FlatVectorStore vectorStore = new FlatVectorStore(embeddingModel, directory, 4)) {
+            vectorStore.add(IntStream.range(0, 1000).mapToObj(this::document).toList());
+
+            for (int i = 0; i < 10; i++) {
+                String query = "query-" + i;
+
+                // Act
+                List<Document> results = vectorStore.similaritySearch(SearchRequest.builder().query(query).topK(10).build());
+
+                // Assert
+                assertEquals(exactTopK(vectors.get(query), 10), results.stream().map(Document::getId).toList());
+                assertEquals(cosine(vectors.get(query), vectors.get(results.get(0).getId())), results.get(0).getScore(), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    void testReopenRestoresDocumentsAndDeletes() throws Exception {
+        // Arrange
+        try (FlatVectorStore vectorStore = new FlatVectorStore(embeddingModel, directory, 2)) {
+            vectorStore.add(IntStream.range(0, 300).mapToObj(this::document).toList());
+            vectorStore.delete(List.of("doc-1", "doc-2"));
+            vectorStore.add(List.of(document(3)));
+        }
+
+        // Act
+        try (FlatVectorStore reopened = new FlatVectorStore(embeddingModel, directory, 2)) {
+            List<Document> results = reopened.similaritySearch(SearchRequest.builder().query("query-0").topK(5).build());
+
+            // Assert
+            assertEquals(298, reopened.size());
+            assertFalse(reopened.documentIds().contains("doc-1"));
+            assertTrue(reopened.documentIds().contains("doc-3"));
+            assertEquals(exactTopK(vectors.get("query-0"), 5, Set.of("doc-1", "doc-2"), 300),
+                    results.stream().map(Document::getId).toList());
+            assertEquals("doc-" + results.get(0).getId().substring(4), results.get(0).getText());
+        }
+    }
+
+    @Test
+    void testFilterAndDeleteByFilter() throws Exception {
+        // Arrange
+        try (FlatVectorStore vectorStore = new FlatVectorStore(embeddingModel, directory, 3)) {
+            vectorStore.add(IntStream.range(0, 500).mapToObj(this::document).toList());
+
+            // Act
+            List<Document> filtered = vectorStore.similaritySearch(SearchRequest.builder()
+                    .query("query-1")
+                    .topK(5)
+                    .filterExpression("bucket == 'b4' && year >= 2010")
+                    .build());
+            vectorStore.delete("bucket == 'b4'");
+
+            // Assert
+            assertEquals(5, filtered.size());
+            assertTrue(filtered.stream().allMatch(result -> "b4".equals(result.getMetadata().get("bucket"))));
+            assertEquals(450, vectorStore.size());
+            assertTrue(vectorStore.similaritySearch(SearchRequest.builder().query("query-1").topK(50).build()).stream()
+                    .noneMatch(result -> "b4".equals(result.getMetadata().get("bucket"))));
+        }
+    }
+
+    @Test
+    void testInt8QuantizationRescoresWithExactVectors() throws Exception {
+        // Arrange
+        try (FlatVectorStore vectorStore = new FlatVectorStore(embeddingModel, directory, 4, true, 4)) {
+            vectorStore.add(IntStream.range(0, 1000).mapToObj(this::document).toList());
+        }
+
+        // Act
+        int found = 0;
+        try (FlatVectorStore reopened = new FlatVectorStore(embeddingModel, directory, 4, true, 4)) {
+            for (int i = 0; i < 10; i++) {
+                String query = "query-" + i;
+                List<String> expected = exactTopK(vectors.get(query), 10);
+                List<Document> results = reopened.similaritySearch(SearchRequest.builder().query(query).topK(10).build());
+                found += (int) results.stream().filter(result -> expected.contains(result.getId())).count();
+
+                // Assert
+                for (Document result : results) {
+                    assertEquals(cosine(vectors.get(query), vectors.get(result.getId())), result.getScore(), 1e-4);
+                }
+            }
+        }
+        assertTrue(found >= 95, "recall@10 too low: " + found + "/100");
+    }
+
+    private Document document(int i) {
+        return Document.builder()
+                .id("doc-" + i)
+                .text("doc-" + i)
+                .metadata(Map.of("bucket", "b" + (i % 10), "year", String.valueOf(2007 + i % 10)))
+                .build();
+    }
+
+    private List<String> exactTopK(float[] query, int k) {
+        return exactTopK(query, k, Set.of(), 1000);
+    }
+
+    private List<String> exactTopK(float[] query, int k, Set<String> excluded, int documents) {
+        return IntStream.range(0, documents)
+                .mapToObj(i -> "doc-" + i)
+                .filter(id -> !excluded.contains(id))
+                .sorted(Comparator.comparingDouble(id -> -cosine(query, vectors.get(id))))
+                .limit(k)
+                .toList();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
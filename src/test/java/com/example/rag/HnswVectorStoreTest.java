@@ -0,0 +1,181 @@
+package com.example.rag;
+
+import com.example.rag.vectorstore.HnswVectorStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class HnswVectorStoreTest {
+
+    private static final int DIMENSIONS = 24;
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    private final Map<String, float[]> vectors = new HashMap<>();
+
+    private HnswVectorStore vectorStore;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            vectors.put("doc-" + i, randomVector(random));
+        }
+        for (int i = 0; i < 20; i++) {
+            vectors.put("query-" + i, randomVector(random));
+        }
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> vectors.get(invocation.<String>getArgument(0)));
+        when(embeddingModel.embed(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+                .map(vectors::get)
+                .toList());
+        vectorStore = new HnswVectorStore(embeddingModel, 12, 100, 64);
+    }
+
+    @Test
+    void testConcurrentInsertsGiveHighRecall() throws Exception {
+        // Arrange
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int batch = 0; batch < 20; batch++) {
+                List<Document> documents = IntStream.range(batch * 100, batch * 100 + 100)
+                        .mapToObj(this::document)
+                        .toList();
+                executor.submit(() -> vectorStore.add(documents));
+            }
+        }
+
+        // Act
+        int found = 0;
+        for (int i = 0; i < 20; i++) {
+            String query = "query-" + i;
+            Set<String> expected = exactTopK(vectors.get(query), 10);
+            found += (int) vectorStore.similaritySearch(SearchRequest.builder().query(query).topK(10).build()).stream()
+                    .filter(result -> expected.contains(result.getId()))
+                    .count();
+        }
+
+        // Assert
+        assertEquals(2000, vectorStore.size());
+        assertTrue(found >= 180, "recall@10 too low: " + found + "/200");
+    }
+
+    @Test
+    void testFilterAndDelete() {
+        // Arrange
+        vectorStore.add(IntStream.range(0, 500).mapToObj(this::document).toList());
+        vectorStore.delete(List.of("doc-7"));
+
+        // Act
+        List<Document> results = vectorStore.similaritySearch(SearchRequest.builder()
+                .query("query-0")
+                .topK(5)
+                .filterExpression("bucket == 'b7' && year >= 2010")
+                .build());
+
+        // Assert
+        assertEquals(5, results.size());
+        assertTrue(results.stream().allMatch(result -> "b7".equals(result.getMetadata().get("bucket"))));
+        assertTrue(results.stream().allMatch(result -> Integer.parseInt((String) result.getMetadata().get("year")) >= 2010));
+        assertTrue(results.stream().noneMatch(result -> result.getId().equals("doc-7")));
+        assertTrue(results.get(0).getScore() >= results.get(4).getScore());
+    }
+
+    @Test
+    void testSearchAfterMostDocumentsAreDeleted() {
+        // Arrange
+        IntStream.range(990, 1000).forEach(i -> vectors.put("doc-" + i, vectors.get("query-0")));
+        vectorStore.add(IntStream.range(0, 1000).mapToObj(this::document).toList());
+        vectorStore.delete(IntStream.range(0, 990).mapToObj(i -> "doc-" + i).toList());
+        vectorStore.add(IntStream.range(990, 1000).mapToObj(this::document).toList());
+
+        // Act
+        List<Document> results = vectorStore.similaritySearch(SearchRequest.builder().query("query-0").topK(10).similarityThresholdAll().build());
+
+        // Assert
+        assertEquals(10, vectorStore.size());
+        assertEquals(IntStream.range(990, 1000).mapToObj(i -> "doc-" + i).collect(Collectors.toSet()),
+                results.stream().map(Document::getId).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testSearchFallsBackWhenTombstonesCrowdOutCandidates() {
+        // Arrange
+        HnswVectorStore narrowStore = new HnswVectorStore(embeddingModel, 4, 16, 4);
+        narrowStore.add(IntStream.range(0, 100).mapToObj(this::document).toList());
+        Set<String> nearest = exactTopK(vectors.get("query-0"), 20);
+        narrowStore.delete(List.copyOf(nearest).subList(0, 20));
+
+        // Act
+        List<Document> results = narrowStore.similaritySearch(SearchRequest.builder().query("query-0").topK(5).similarityThresholdAll().build());
+
+        // Assert
+        assertEquals(5, results.size());
+        assertTrue(results.stream().noneMatch(result -> nearest.contains(result.getId())));
+    }
+
+    @Test
+    void testRejectsFewerThanTwoNeighbors() {
+        assertThrows(IllegalArgumentException.class, () -> new HnswVectorStore(embeddingModel, 1, 100, 64));
+    }
+
+    private Document document(int i) {
+        return Document.builder()
+                .id("doc-" + i)
+                .text("doc-" + i)
+                .metadata(Map.of("bucket", "b" + (i % 10), "year", String.valueOf(2007 + i % 10)))
+                .build();
+    }
+
+    private Set<String> exactTopK(float[] query, int k) {
+        List<Map.Entry<String, float[]>> documents = new ArrayList<>(vectors.entrySet());
+        return documents.stream()
+                .filter(entry -> entry.getKey().startsWith("doc-"))
+                .sorted(Comparator.comparingDouble(entry -> -cosine(query, entry.getValue())))
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.rag;
+
+import com.example.rag.model.MacroeconomicIndicator;
+import com.example.rag.service.IndicatorLookupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicatorLookupServiceTest {
+
+    private final IndicatorLookupService indicatorLookupService = new IndicatorLookupService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(indicatorLookupService, "enabled", true);
+        IndicatorLookupService.Builder builder = indicatorLookupService.newBuilder();
+        builder.add(new MacroeconomicIndicator("Revenues", "Annual %\nChange", "2007/08", "22.7"));
+        builder.add(new MacroeconomicIndicator("Revenues", "Annual %\nChange", "2008/09", "-3.1"));
+        builder.add(new MacroeconomicIndicator("Revenue/GDP", "%", "2007/08", "11.5"));
+        builder.add(new MacroeconomicIndicator("Tax Revenue/GDP", "%", "2007/08", "8.9"));
+        builder.add(new MacroeconomicIndicator("Total Government\nExpenditures", "Annual %\nChange", "2007/08", "20.8"));
+        indicatorLookupService.replace(builder.build());
+    }
+
+    @Test
+    void testSimpleLookupIsAnsweredFromIndex() {
+        // Act
+        Optional<String> answer = indicatorLookupService.answer("What were Revenues in 2007/08?");
+
+        // Assert
+        assertEquals(Optional.of("In 2007/08, Revenues was 22.7 Annual % Change."), answer);
+    }
+
+    @Test
+    void testLongestIndicatorAndYearVariantsMatch() {
+        // Act & Assert
+        assertEquals(Optional.of("In 2007/08, Tax Revenue/GDP was 8.9 %."),
+                indicatorLookupService.answer("tax revenue/gdp for 2007-2008"));
+        assertEquals(Optional.of("In 2007/08, Total Government Expenditures was 20.8 Annual % Change."),
+                indicatorLookupService.answer("How much were total government expenditures in 2007 / 08"));
+    }
+
+    @Test
+    void testAnalyticalOrAmbiguousPromptsFallBack() {
+        // Act & Assert
+        assertTrue(indicatorLookupService.answer("Compare Revenues in 2007/08 and 2008/09").isEmpty());
+        assertTrue(indicatorLookupService.answer("Why did Revenues fall in 2008/09?").isEmpty());
+        assertTrue(indicatorLookupService.answer("Revenues and Revenue/GDP in 2007/08").isEmpty());
+        assertTrue(indicatorLookupService.answer("What were Revenues?").isEmpty());
+        assertTrue(indicatorLookupService.answer("What were Revenues in 2012/13?").isEmpty());
+    }
+
+    @Test
+    void testInflectedAnalyticalPromptsFallBack() {
+        // Act & Assert
+        assertTrue(indicatorLookupService.answer("Revenues in 2007/08 compared with the year before").isEmpty());
+        assertTrue(indicatorLookupService.answer("How have Revenues changed since 2007/08?").isEmpty());
+        assertTrue(indicatorLookupService.answer("Were Revenues growing in 2007/08?").isEmpty());
+        assertTrue(indicatorLookupService.answer("Revenues trending in 2007/08").isEmpty());
+        assertEquals(Optional.of("In 2007/08, Revenues was 22.7 Annual % Change."),
+                indicatorLookupService.answer("Revenues annual % change in 2007/08"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.rag;
+
+import com.example.rag.model.IngestionJobStatus;
+import com.example.rag.model.IngestionJobStatus.State;
+import com.example.rag.model.IngestionResult;
+import com.example.rag.service.CsvProcessingService;
+import com.example.rag.service.IngestionJobService;
+import com.example.rag.service.IngestionListener;
+import com.example.rag.service.VectorStoreService;
+import com.example.rag.vectorstore.LocalVectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.SetParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobServiceTest {
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @Mock
+    private CsvProcessingService csvProcessingService;
+
+    @Mock
+    private LocalVectorStore vectorStore;
+
+    @Mock
+    private JedisPooled jedis;
+
+    @InjectMocks
+    private IngestionJobService ingestionJobService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ingestionJobService, "defaultFile", "data.csv");
+        ReflectionTestUtils.setField(ingestionJobService, "retentionHours", 168L);
+        ReflectionTestUtils.setField(ingestionJobService, "jobsKey", "rag:ingestion:jobs");
+        ReflectionTestUtils.setField(ingestionJobService, "claimTtlMs", 60000L);
+    }
+
+    // Switches the service to the Redis path, with job-1 running in Redis
+    private String useRedisWithRunningJob() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReflectionTestUtils.setField(ingestionJobService, "vectorStore", mock(VectorStore.class));
+        ReflectionTestUtils.setField(ingestionJobService, "objectMapper", objectMapper);
+        Instant submittedAt = Instant.parse("2026-10-17T08:00:00Z");
+        IngestionJobStatus running = new IngestionJobStatus("job-1", "data.csv", State.RUNNING, null, false,
+                submittedAt, submittedAt, null, null, null);
+        when(jedis.get("rag:ingestion:jobs:job-1")).thenReturn(objectMapper.writeValueAsString(running));
+        return "job-1";
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionJobService.shutdown();
+    }
+
+    @Test
+    void testJobReportsProgressAndResult() {
+        // Arrange
+        when(csvProcessingService.sizeOf("data.csv")).thenReturn(1000L);
+        when(vectorStoreService.loadAndStoreDocuments(eq("data.csv"), any())).thenAnswer(invocation -> {
+            IngestionListener listener = invocation.getArgument(1);
+            listener.bytesRead(1000);
+            listener.rowParsed();
+            listener.rowParsed();
+            listener.documentUnchanged();
+            listener.batchStored(1);
+            return new IngestionResult(2, 1, 1, 0, 1, 0);
+        });
+
+        // Act
+        IngestionJobStatus submitted = ingestionJobService.submit("data.csv");
+        IngestionJobStatus finished = await(() -> ingestionJobService.find(submitted.jobId()).orElseThrow());
+
+        // Assert
+        assertEquals(State.SUCCEEDED, finished.status());
+        assertEquals(2, finished.progress().rowsParsed());
+        assertEquals(1, finished.progress().documentsUnchanged());
+        assertEquals(1, finished.progress().documentsStored());
+        assertEquals(100.0, finished.progress().percent());
+        assertEquals(1, finished.result().storedDocuments());
+    }
+
+    @Test
+    void testCancelStopsRunningJob() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        when(csvProcessingService.sizeOf(anyString())).thenReturn(-1L);
+        when(vectorStoreService.loadAndStoreDocuments(eq("data.csv"), any())).thenAnswer(invocation -> {
+            IngestionListener listener = invocation.getArgument(1);
+            started.countDown();
+            while (!listener.isCancelled()) {
+                Thread.sleep(5);
+            }
+            throw new CancellationException("Loading data.csv was cancelled");
+        });
+        IngestionJobStatus submitted = ingestionJobService.submit("data.csv");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        IngestionJobStatus duplicate = ingestionJobService.submit("data.csv");
+        ingestionJobService.cancel(submitted.jobId());
+        IngestionJobStatus finished = await(() -> ingestionJobService.find(submitted.jobId()).orElseThrow());
+
+        // Assert
+        assertEquals(submitted.jobId(), duplicate.jobId());
+        assertEquals(State.CANCELLED, finished.status());
+        assertNull(finished.progress().etaSeconds());
+        verify(vectorStoreService, times(1)).loadAndStoreDocuments(anyString(), any());
+    }
+
+    @Test
+    void testResumeLeavesJobsClaimedByAnotherInstance() throws Exception {
+        // Arrange
+        String jobId = useRedisWithRunningJob();
+        when(jedis.smembers("rag:ingestion:jobs")).thenReturn(Set.of(jobId));
+        when(jedis.eval(anyString(), anyList(), anyList())).thenReturn(0L);
+        when(jedis.set(eq("rag:ingestion:jobs:job-1:owner"), anyString(), any(SetParams.class))).thenReturn(null);
+
+        // Act
+        ingestionJobService.resumeUnfinishedJobs();
+
+        // Assert
+        assertTrue(ingestionJobService.list().isEmpty());
+        assertEquals(State.RUNNING, ingestionJobService.find(jobId).orElseThrow().status());
+        verifyNoInteractions(vectorStoreService);
+    }
+
+    @Test
+    void testCancelOfJobRunByAnotherInstanceSetsCancelFlag() throws Exception {
+        // Arrange
+        String jobId = useRedisWithRunningJob();
+
+        // Act
+        Optional<IngestionJobStatus> status = ingestionJobService.cancel(jobId);
+
+        // Assert
+        assertEquals(State.RUNNING, status.orElseThrow().status());
+        verify(jedis).set(eq("rag:ingestion:jobs:job-1:cancel"), anyString(), any(SetParams.class));
+    }
+
+    private static IngestionJobStatus await(Supplier<IngestionJobStatus> status) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        IngestionJobStatus current = status.get();
+        while (!current.status().isFinished() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            current = status.get();
+        }
+        return current;
+    }
+}
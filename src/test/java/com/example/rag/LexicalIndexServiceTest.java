@@ -0,0 +1,60 @@
+package com.example.rag;
+
+import com.example.rag.service.LexicalIndexService;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexicalIndexServiceTest {
+
+    private final LexicalIndexService lexicalIndexService = new LexicalIndexService();
+
+    @Test
+    void testExactTokensRankFirst() {
+        // Arrange
+        LexicalIndexService.Builder builder = lexicalIndexService.newBuilder();
+        builder.add(document("1", "Revenues", "2007/08", "22.7"));
+        builder.add(document("2", "Total Government Expenditures", "2007/08", "20.8"));
+        builder.add(document("3", "Total Government Expenditures", "2008/09", "18.1"));
+        builder.add(document("4", "Grants", "2008/09", "5.3"));
+        lexicalIndexService.replace(builder.build());
+
+        // Act
+        List<Document> results = lexicalIndexService.search("Total Government Expenditures in 2007/08", 3);
+
+        // Assert
+        assertEquals(List.of("2", "3", "1"), results.stream().map(Document::getId).toList());
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+        assertTrue(lexicalIndexService.search("2009/10", 3).isEmpty());
+    }
+
+    @Test
+    void testReplaceReportsChangedDocuments() {
+        // Arrange
+        LexicalIndexService.Builder first = lexicalIndexService.newBuilder();
+        first.add(document("1", "Revenues", "2007/08", "22.7"));
+        LexicalIndexService.Builder same = lexicalIndexService.newBuilder();
+        same.add(document("1", "Revenues", "2007/08", "22.7"));
+        LexicalIndexService.Builder grown = lexicalIndexService.newBuilder();
+        grown.add(document("1", "Revenues", "2007/08", "22.7"));
+        grown.add(document("2", "Grants", "2007/08", "4.1"));
+
+        // Act & Assert
+        assertTrue(lexicalIndexService.replace(first.build()));
+        assertFalse(lexicalIndexService.replace(same.build()));
+        assertTrue(lexicalIndexService.replace(grown.build()));
+        assertEquals(2, lexicalIndexService.size());
+    }
+
+    private Document document(String id, String indicator, String year, String value) {
+        return Document.builder()
+                .id(id)
+                .text(String.format("In %s, %s was %s %s", year, indicator, value, "Annual % Change"))
+                .metadata(Map.of("indicator", indicator, "units", "Annual % Change", "year", year))
+                .build();
+    }
+}
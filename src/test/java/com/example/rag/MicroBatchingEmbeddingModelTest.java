@@ -0,0 +1,137 @@
+package com.example.rag;
+
+import com.example.rag.embedding.MicroBatchingEmbeddingModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatchingEmbeddingModelTest {
+
+    private final RecordingEmbeddingModel delegate = new RecordingEmbeddingModel();
+
+    @Test
+    void testConcurrentQueriesShareOneDelegateCall() throws Exception {
+        // Arrange
+        MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 500, 64);
+        List<Future<float[]>> results = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 16; i++) {
+                String query = "query " + i;
+                results.add(executor.submit(() -> model.embed(query)));
+            }
+        }
+
+        // Assert
+        for (int i = 0; i < 16; i++) {
+            assertArrayEquals(RecordingEmbeddingModel.vectorFor("query " + i), results.get(i).get());
+        }
+        assertEquals(1, delegate.requests.size());
+        assertEquals(16, delegate.requests.get(0).size());
+        assertEquals(1, model.getBatches());
+        assertEquals(16, model.getBatchedTexts());
+    }
+
+    @Test
+    void testFullBatchIsSentBeforeWindowEnds() throws Exception {
+        // Arrange
+        MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 60_000, 4);
+        List<Future<float[]>> results = new ArrayList<>();
+
+        // Act
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 4; i++) {
+                String query = "query " + i;
+                results.add(executor.submit(() -> model.embed(query)));
+            }
+            for (Future<float[]> result : results) {
+                result.get();
+            }
+        }
+
+        // Assert
+        assertTrue(System.nanoTime() - start < 30_000_000_000L);
+        assertEquals(1, delegate.requests.size());
+        assertEquals(4, delegate.requests.get(0).size());
+    }
+
+    @Test
+    void testRequestThatDoesNotFitStartsNextBatch() throws Exception {
+        // Arrange
+        MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 200, 4);
+        List<Future<List<float[]>>> results = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 3; i++) {
+                List<String> texts = List.of("query " + i + "a", "query " + i + "b", "query " + i + "c");
+                results.add(executor.submit(() -> model.embed(texts)));
+            }
+        }
+
+        // Assert
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(RecordingEmbeddingModel.vectorFor("query " + i + "c"), results.get(i).get().get(2));
+        }
+        assertEquals(3, delegate.requests.size());
+        assertTrue(delegate.requests.stream().allMatch(texts -> texts.size() <= 4));
+    }
+
+    @Test
+    void testLargeRequestsBypassBatching() {
+        // Arrange
+        MicroBatchingEmbeddingModel model = new MicroBatchingEmbeddingModel(delegate, 60_000, 2);
+
+        // Act
+        List<float[]> vectors = model.embed(List.of("a", "bb", "ccc"));
+
+        // Assert
+        assertEquals(3, vectors.size());
+        assertArrayEquals(RecordingEmbeddingModel.vectorFor("ccc"), vectors.get(2));
+        assertEquals(1, delegate.requests.size());
+        assertEquals(0, model.getBatches());
+    }
+
+    private static class RecordingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+        static float[] vectorFor(String text) {
+            return new float[] {text.length(), text.hashCode()};
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(List.copyOf(request.getInstructions()));
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(vectorFor(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return vectorFor(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.rag;
+
+import com.example.rag.model.IndexChangedEvent;
+import com.example.rag.service.QueryResultCacheService;
+import com.example.rag.service.RequestCoalescer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueryResultCacheServiceTest {
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    @InjectMocks
+    private QueryResultCacheService queryResultCacheService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(queryResultCacheService, "enabled", true);
+        ReflectionTestUtils.setField(queryResultCacheService, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(queryResultCacheService, "maxEntries", 1000);
+        ReflectionTestUtils.setField(queryResultCacheService, "semanticThreshold", 0.97);
+    }
+
+    @Test
+    void testIndexChangeInvalidatesEntries() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        queryResultCacheService.getOrCompute("ask", "What were Revenues?", List.of(), calls::incrementAndGet);
+
+        // Act
+        Integer cached = queryResultCacheService.getOrCompute("ask", "what were revenues", List.of(), calls::incrementAndGet);
+        queryResultCacheService.onIndexChanged(new IndexChangedEvent("test.csv", 1, 0));
+        Integer recomputed = queryResultCacheService.getOrCompute("ask", "what were revenues", List.of(), calls::incrementAndGet);
+
+        // Assert
+        assertEquals(1, cached);
+        assertEquals(2, recomputed);
+        assertEquals(1, queryResultCacheService.getExactHits());
+    }
+
+    @Test
+    void testExpiredEntriesAreRecomputed() {
+        // Arrange
+        ReflectionTestUtils.setField(queryResultCacheService, "ttlSeconds", 0L);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        queryResultCacheService.getOrCompute("ask", "revenues", List.of(), calls::incrementAndGet);
+        Integer second = queryResultCacheService.getOrCompute("ask", "revenues", List.of(), calls::incrementAndGet);
+
+        // Assert
+        assertEquals(2, second);
+        assertEquals(0, queryResultCacheService.getExactHits());
+    }
+
+    @Test
+    void testNearDuplicateQueryReusesEntry() {
+        // Arrange
+        ReflectionTestUtils.setField(queryResultCacheService, "semanticEnabled", true);
+        when(embeddingModel.embed("what were revenues in 2007/08")).thenReturn(new float[] {1f, 0f, 0.1f});
+        when(embeddingModel.embed("revenues in 2007/08")).thenReturn(new float[] {1f, 0f, 0.12f});
+        when(embeddingModel.embed("capital expenditure")).thenReturn(new float[] {0f, 1f, 0f});
+        queryResultCacheService.getOrCompute("ask", "What were Revenues in 2007/08?", List.of(), () -> "22.7");
+
+        // Act
+        String similar = queryResultCacheService.getOrCompute("ask", "Revenues in 2007/08", List.of(), () -> "recomputed");
+        String different = queryResultCacheService.getOrCompute("ask", "Capital expenditure", List.of(), () -> "recomputed");
+
+        // Assert
+        assertEquals("22.7", similar);
+        assertEquals("recomputed", different);
+        assertEquals(1, queryResultCacheService.getSemanticHits());
+    }
+}
@@ -56,7 +56,7 @@ class RagControllerIntegrationTest {
         // Note: This test will fail if Redis is not running or OpenAI key is invalid
         // In a real test environment, you would mock these dependencies
         mockMvc.perform(post("/api/rag/load-data"))
-                .andExpect(status().isOk())
+                .andExpect(status().isAccepted())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.status").exists());
     }
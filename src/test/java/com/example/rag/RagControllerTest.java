@@ -0,0 +1,139 @@
+package com.example.rag;
+
+import com.example.rag.controller.RagController;
+import com.example.rag.controller.RagExceptionHandler;
+import com.example.rag.service.DownstreamBusyException;
+import com.example.rag.service.DownstreamLimiter.Downstream;
+import com.example.rag.service.VectorStoreService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class RagControllerTest {
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @InjectMocks
+    private RagController ragController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ragController, "maxBatchQueries", 100);
+        ReflectionTestUtils.setField(ragController, "maxTopK", 50);
+        mockMvc = MockMvcBuilders.standaloneSetup(ragController)
+                .setControllerAdvice(new RagExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void testSearchProjectsRequestedFields() throws Exception {
+        // Arrange
+        when(vectorStoreService.searchSimilarDocuments("revenue", 3, 0.75))
+                .thenReturn(List.of(new Document("In 2007/08, Revenues was 22.7", Map.of("year", "2007/08"))));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"topK\":\"3\",\"fields\":[\"content\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"))
+                .andExpect(jsonPath("$.totalResults").value(1))
+                .andExpect(jsonPath("$.results[0].content").value("In 2007/08, Revenues was 22.7"))
+                .andExpect(jsonPath("$.results[0].metadata").doesNotExist())
+                .andExpect(jsonPath("$.year").doesNotExist());
+    }
+
+    @Test
+    void testInvalidRequestsAreRejectedWithBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"topK\":\"many\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("error"))
+                .andExpect(jsonPath("$.message").value("Request body is missing or malformed"));
+
+        mockMvc.perform(post("/api/rag/search-by-year")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Year cannot be empty"));
+
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"fields\":[\"score\"]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Fields may only contain 'content' and 'metadata'"));
+
+        mockMvc.perform(post("/api/rag/search-by-year")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"year\":\"2007/08' OR 1=1\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Year must be a fiscal year such as 2007/08"));
+
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"filter\":{\"fromYear\":2012,\"toYear\":2010}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Filter fromYear cannot be after toYear"));
+
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"mode\":\"hybrid\",\"filter\":{\"indicators\":[\"Revenues\"]}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("A filter can only be used with the 'vector' mode"));
+
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\",\"topK\":51}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("topK cannot be more than 50"));
+
+        mockMvc.perform(post("/api/rag/search/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"queries\":[\"revenue\"],\"topK\":1000000}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("topK cannot be more than 50"));
+
+        mockMvc.perform(post("/api/rag/load-data").param("file", "../secrets.csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("File must be a .csv or .csv.gz file name without a path"));
+
+        verifyNoInteractions(vectorStoreService);
+    }
+
+    @Test
+    void testSaturatedDownstreamIsAnsweredWithServiceUnavailable() throws Exception {
+        // Arrange
+        when(vectorStoreService.searchSimilarDocuments("revenue", 5, 0.75))
+                .thenThrow(new DownstreamBusyException(Downstream.EMBEDDING, 2500));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/rag/search")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"query\":\"revenue\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "3"))
+                .andExpect(jsonPath("$.status").value("error"))
+                .andExpect(jsonPath("$.message").value("Too many concurrent EMBEDDING calls; no capacity within 2500 ms"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rag;
+
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.metrics.RagMetrics.Stage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RagMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RagMetrics ragMetrics = new RagMetrics();
+
+    @AfterEach
+    void tearDown() {
+        RagMetrics.clearEndpoint();
+    }
+
+    @Test
+    void testStagesAreTaggedWithEndpointAndModel() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(ragMetrics, "chatModel", "gpt-4o-mini");
+        RagMetrics.setEndpoint("/api/rag/ask");
+
+        // Act
+        String answer = ragMetrics.time(Stage.LLM_CALL, () -> "22.7");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(RagMetrics.withEndpoint(() -> ragMetrics.time(Stage.VECTOR_SEARCH, () -> {}))).get();
+            executor.submit(() -> ragMetrics.time(Stage.VECTOR_SEARCH, () -> {})).get();
+        }
+        ragMetrics.recordContextSize(1200);
+
+        // Assert
+        assertEquals("22.7", answer);
+        Timer llmTimer = meterRegistry.find("rag.stage")
+                .tags("stage", "llm_call", "endpoint", "/api/rag/ask", "model", "gpt-4o-mini")
+                .timer();
+        assertNotNull(llmTimer);
+        assertEquals(1, llmTimer.count());
+        assertEquals(1, meterRegistry.find("rag.stage").tags("stage", "vector_search", "endpoint", "/api/rag/ask").timer().count());
+        assertEquals(1, meterRegistry.find("rag.stage").tags("stage", "vector_search", "endpoint", RagMetrics.NO_ENDPOINT).timer().count());
+        assertEquals(1200, meterRegistry.find("rag.context.size").summary().totalAmount());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.rag;
+
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.service.ContextBuilder;
+import com.example.rag.service.DownstreamLimiter;
+import com.example.rag.service.IndicatorLookupService;
+import com.example.rag.service.QueryResultCacheService;
+import com.example.rag.service.RagService;
+import com.example.rag.service.VectorStoreService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RagServiceTest {
+
+    @Mock
+    private VectorStoreService vectorStoreService;
+
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    private ChatClient chatClient;
+
+    @Mock
+    private QueryResultCacheService queryResultCacheService;
+
+    @Mock
+    private IndicatorLookupService indicatorLookupService;
+
+    @Spy
+    private DownstreamLimiter downstreamLimiter = new DownstreamLimiter();
+
+    @Spy
+    private RagMetrics ragMetrics = new RagMetrics();
+
+    @Spy
+    private ContextBuilder contextBuilder = new ContextBuilder();
+
+    @InjectMocks
+    private RagService ragService;
+
+    private final ExecutorService outboundExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Document revenues = new Document("In 2007/08, Revenues was 22.7 Annual % Change",
+            Map.of("indicator", "Revenues", "year", "2007/08"));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ragService, "outboundExecutor", outboundExecutor);
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(contextBuilder, "maxTokens", 1500);
+        ReflectionTestUtils.setField(contextBuilder, "mmrLambda", 0.7);
+        ReflectionTestUtils.setField(contextBuilder, "duplicateThreshold", 0.9);
+    }
+
+    @AfterEach
+    void tearDown() {
+        outboundExecutor.close();
+    }
+
+    @Test
+    void testStreamSendsSourcesThenTokensThenDone() {
+        // Arrange
+        when(vectorStoreService.searchSimilarDocuments("How did revenues develop?", 5, 0.6)).thenReturn(List.of(revenues));
+        when(chatClient.prompt(any(Prompt.class)).stream().content()).thenReturn(Flux.just("Revenues ", "grew."));
+
+        // Act
+        List<ServerSentEvent<Object>> events = ragService.streamResponse("How did revenues develop?").collectList().block();
+
+        // Assert
+        assertEquals(List.of("sources", "token", "token", "done"), events.stream().map(ServerSentEvent::event).toList());
+        assertEquals("Revenues ", events.get(1).data());
+        List<?> sources = (List<?>) events.get(0).data();
+        assertEquals(1, sources.size());
+    }
+
+    @Test
+    void testCancellingStreamCancelsChatCall() {
+        // Arrange
+        AtomicBoolean cancelled = new AtomicBoolean();
+        when(vectorStoreService.searchSimilarDocuments(anyString(), anyInt(), anyDouble())).thenReturn(List.of(revenues));
+        when(chatClient.prompt(any(Prompt.class)).stream().content())
+                .thenReturn(Flux.just("Revenues").concatWith(Flux.never()).doOnCancel(() -> cancelled.set(true)));
+
+        // Act
+        List<ServerSentEvent<Object>> events = ragService.streamResponse("How did revenues develop?").take(2).collectList().block();
+
+        // Assert
+        assertEquals(2, events.size());
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void testStreamAnswersLookupsWithoutChatModel() {
+        // Arrange
+        when(indicatorLookupService.answer("Revenues in 2007/08?"))
+                .thenReturn(Optional.of("In 2007/08, Revenues was 22.7 Annual % Change."));
+
+        // Act
+        List<ServerSentEvent<Object>> events = ragService.streamResponse("Revenues in 2007/08?").collectList().block();
+
+        // Assert
+        assertEquals("In 2007/08, Revenues was 22.7 Annual % Change.", events.get(1).data());
+        verify(vectorStoreService).syncIndexes();
+        verifyNoMoreInteractions(vectorStoreService);
+    }
+}
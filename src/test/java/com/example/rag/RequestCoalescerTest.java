@@ -0,0 +1,90 @@
+package com.example.rag;
+
+import com.example.rag.service.RequestCoalescer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+    @Test
+    void testConcurrentCallersShareOneExecution() throws Exception {
+        // Arrange
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        // Act
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> requestCoalescer.execute("ask:revenues", () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return "22.7";
+                })));
+            }
+            while (requestCoalescer.getCoalescedRequests() < 19) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+        }
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("22.7", result.get());
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, requestCoalescer.getInFlight());
+        assertEquals("recomputed", requestCoalescer.execute("ask:revenues", () -> "recomputed"));
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        Future<String> leader;
+        Future<String> follower;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            leader = executor.submit(() -> requestCoalescer.execute("search", () -> {
+                await(release);
+                throw new IllegalStateException("upstream down");
+            }));
+            while (requestCoalescer.getInFlight() == 0) {
+                Thread.onSpinWait();
+            }
+            follower = executor.submit(() -> requestCoalescer.execute("search", () -> "unused"));
+            while (requestCoalescer.getCoalescedRequests() == 0) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+        }
+
+        // Assert
+        ExecutionException leaderError = assertThrows(ExecutionException.class, leader::get);
+        ExecutionException followerError = assertThrows(ExecutionException.class, follower::get);
+        assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+        assertSame(leaderError.getCause(), followerError.getCause());
+        assertEquals("ok", requestCoalescer.execute("search", () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
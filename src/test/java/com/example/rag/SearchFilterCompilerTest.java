@@ -0,0 +1,61 @@
+package com.example.rag;
+
+import com.example.rag.config.RagConfiguration;
+import com.example.rag.model.SearchFilter;
+import com.example.rag.service.SearchFilterCompiler;
+import com.example.rag.vectorstore.LocalVectorStore;
+import com.example.rag.vectorstore.MetadataFilters;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.redis.RedisFilterExpressionConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class SearchFilterCompilerTest {
+
+    private final SearchFilterCompiler compiler = new SearchFilterCompiler();
+
+    @Test
+    void testCompileForRedisEscapesTagValues() {
+        // Arrange
+        ReflectionTestUtils.setField(compiler, "vectorStore", mock(VectorStore.class));
+        SearchFilter filter = new SearchFilter(2010, 2012,
+                List.of("Revenues} | @source:{x", "Total Government Expenditures"), List.of("Annual %\nChange"), 10.0, null);
+
+        // Act
+        Filter.Expression expression = compiler.compile(filter);
+        String query = new RedisFilterExpressionConverter(RagConfiguration.REDIS_METADATA_FIELDS).convertExpression(expression);
+
+        // Assert
+        assertEquals("@yearStart:[2010 inf] @yearStart:[-inf 2012]"
+                + " @indicator:{Revenues\\}\\ \\|\\ \\@source\\:\\{x | Total\\ Government\\ Expenditures}"
+                + " @units:{Annual\\ \\%\\ Change} @numericValue:[10.0 inf]", query);
+        assertEquals("@yearStart:[2007 2007]", new RedisFilterExpressionConverter(RagConfiguration.REDIS_METADATA_FIELDS)
+                .convertExpression(compiler.compile(SearchFilter.forYear("2007/08"))));
+        assertNull(compiler.compile(new SearchFilter(null, null, null, null, null, null)));
+    }
+
+    @Test
+    void testCompileForLocalStoresMatchesRawValues() {
+        // Arrange
+        ReflectionTestUtils.setField(compiler, "vectorStore", mock(LocalVectorStore.class));
+        SearchFilter filter = new SearchFilter(2010, null, List.of("Revenues", "Total Government Expenditures"), null, null, 20.0);
+
+        // Act
+        Predicate<Map<String, Object>> predicate = MetadataFilters.compile(compiler.compile(filter));
+
+        // Assert
+        assertTrue(predicate.test(Map.of("indicator", "Revenues", "yearStart", 2011, "numericValue", 18.1)));
+        assertFalse(predicate.test(Map.of("indicator", "Revenues", "yearStart", 2009, "numericValue", 18.1)));
+        assertFalse(predicate.test(Map.of("indicator", "Revenues", "yearStart", 2011, "numericValue", 22.7)));
+        assertFalse(predicate.test(Map.of("indicator", "Capital Expenditure", "yearStart", 2011, "numericValue", 18.1)));
+        assertFalse(predicate.test(Map.of("indicator", "Revenues", "yearStart", 2011)));
+    }
+}
@@ -1,20 +1,46 @@
 package com.example.rag;
 
+import com.example.rag.metrics.RagMetrics;
+import com.example.rag.model.IndexChangedEvent;
+import com.example.rag.model.IngestionResult;
 import com.example.rag.model.MacroeconomicIndicator;
 import com.example.rag.service.CsvProcessingService;
+import com.example.rag.service.DownstreamLimiter;
+import com.example.rag.service.IndicatorLookupService;
+import com.example.rag.service.IngestionManifestService;
+import com.example.rag.service.LexicalIndexService;
+import com.example.rag.service.QueryResultCacheService;
+import com.example.rag.service.RequestCoalescer;
+import com.example.rag.service.SearchFilterCompiler;
 import com.example.rag.service.VectorStoreService;
+import com.example.rag.vectorstore.LocalVectorStore;
+import com.example.rag.vectorstore.VersionedRedisVectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -29,9 +55,62 @@ class VectorStoreServiceTest {
     @Mock
     private CsvProcessingService csvProcessingService;
 
+    @Mock
+    private IngestionManifestService ingestionManifestService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private QueryResultCacheService queryResultCacheService = resultCache();
+
+    @Spy
+    private LexicalIndexService lexicalIndexService = new LexicalIndexService();
+
+    @Spy
+    private IndicatorLookupService indicatorLookupService = new IndicatorLookupService();
+
+    @Spy
+    private DownstreamLimiter downstreamLimiter = new DownstreamLimiter();
+
+    @Spy
+    private RagMetrics ragMetrics = new RagMetrics();
+
+    @Spy
+    private SearchFilterCompiler searchFilterCompiler = new SearchFilterCompiler();
+
     @InjectMocks
     private VectorStoreService vectorStoreService;
 
+    @Captor
+    private ArgumentCaptor<List<Document>> batch;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ragMetrics, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(searchFilterCompiler, "vectorStore", vectorStore);
+        ReflectionTestUtils.setField(indicatorLookupService, "enabled", true);
+        ReflectionTestUtils.setField(vectorStoreService, "batchSize", 100);
+        ReflectionTestUtils.setField(vectorStoreService, "maxConcurrentBatches", 4);
+        ReflectionTestUtils.setField(vectorStoreService, "retrievalMode", "vector");
+        ReflectionTestUtils.setField(vectorStoreService, "hybridCandidates", 20);
+        ReflectionTestUtils.setField(vectorStoreService, "rrfK", 60);
+        ReflectionTestUtils.setField(vectorStoreService, "seriesDocumentsEnabled", true);
+        ReflectionTestUtils.setField(vectorStoreService, "reuseEmbeddings", true);
+        ReflectionTestUtils.setField(vectorStoreService, "indexSyncIntervalMs", 5000L);
+    }
+
+    // Configured before Mockito copies it into the spy, as the entry map reads maxEntries from the original
+    private static QueryResultCacheService resultCache() {
+        QueryResultCacheService cache = new QueryResultCacheService();
+        ReflectionTestUtils.setField(cache, "requestCoalescer", new RequestCoalescer());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 1000);
+        ReflectionTestUtils.setField(cache, "semanticThreshold", 0.97);
+        return cache;
+    }
+
     @Test
     void testLoadAndStoreDocuments() {
         // Arrange
@@ -41,22 +120,276 @@ class VectorStoreServiceTest {
             new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2007/08", "20.8")
         );
 
-        when(csvProcessingService.loadDataFromCsv(csvFileName)).thenReturn(mockIndicators);
-        when(csvProcessingService.filterValidData(mockIndicators)).thenReturn(mockIndicators);
+        when(csvProcessingService.streamValidData(eq(csvFileName), any())).thenReturn(mockIndicators.stream());
         doNothing().when(vectorStore).add(any());
 
         // Act
         vectorStoreService.loadAndStoreDocuments(csvFileName);
 
         // Assert
-        verify(csvProcessingService).loadDataFromCsv(csvFileName);
-        verify(csvProcessingService).filterValidData(mockIndicators);
+        verify(csvProcessingService).streamValidData(eq(csvFileName), any());
         verify(vectorStore).add(argThat(documents -> 
             documents.size() == 2 && 
-            ((List<Document>) documents).get(0).getText().contains("Revenues")
+            ((List<Document>) documents).get(0).getText().contains("Revenues") &&
+            "test.csv".equals(((List<Document>) documents).get(0).getMetadata().get("source"))
+        ));
+    }
+
+    @Test
+    void testLoadAndStoreDocumentsContinuesAfterFailedBatch() {
+        // Arrange
+        String csvFileName = "test.csv";
+        List<MacroeconomicIndicator> mockIndicators = Arrays.asList(
+            new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7"),
+            new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2007/08", "20.8"),
+            new MacroeconomicIndicator("Capital Expenditure", "Annual % Change", "2007/08", "15.1")
+        );
+        String staleId = new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2007/08", "19.9").documentId(csvFileName);
+
+        when(ingestionManifestService.indexedIds(csvFileName)).thenReturn(Set.of(staleId));
+        when(csvProcessingService.streamValidData(eq(csvFileName), any())).thenReturn(mockIndicators.stream());
+        ReflectionTestUtils.setField(vectorStoreService, "batchSize", 1);
+        doAnswer(invocation -> {
+            List<Document> batch = invocation.getArgument(0);
+            if (batch.get(0).getText().contains("Total Government")) {
+                throw new RuntimeException("embedding failed");
+            }
+            return null;
+        }).when(vectorStore).add(any());
+
+        // Act
+        IngestionResult result = vectorStoreService.loadAndStoreDocuments(csvFileName);
+
+        // Assert
+        assertEquals(3, result.totalDocuments());
+        assertEquals(3, result.totalBatches());
+        assertEquals(1, result.failedBatches());
+        assertEquals(2, result.storedDocuments());
+        assertTrue(result.isPartial());
+        assertEquals(0, result.deletedDocuments());
+        verify(vectorStore, times(3)).add(any());
+        verify(vectorStore, never()).delete(anyList());
+        verify(lexicalIndexService, never()).replace(any());
+        verify(indicatorLookupService, never()).replace(any());
+    }
+
+    @Test
+    void testLoadAndStoreDocumentsOnlyEmbedsChangedRows() {
+        // Arrange
+        String csvFileName = "test.csv";
+        MacroeconomicIndicator unchanged = new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7");
+        MacroeconomicIndicator changed = new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2007/08", "21.0");
+        String staleId = new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2007/08", "20.8").documentId(csvFileName);
+
+        when(ingestionManifestService.indexedIds(csvFileName)).thenReturn(Set.of(unchanged.documentId(csvFileName), staleId));
+        when(csvProcessingService.streamValidData(eq(csvFileName), any())).thenReturn(Stream.of(unchanged, changed, unchanged));
+
+        // Act
+        IngestionResult result = vectorStoreService.loadAndStoreDocuments(csvFileName);
+
+        // Assert
+        assertEquals(2, result.totalDocuments());
+        assertEquals(1, result.storedDocuments());
+        assertEquals(1, result.unchangedDocuments());
+        assertEquals(1, result.deletedDocuments());
+        verify(vectorStore).add(argThat(documents ->
+            documents.size() == 1 && documents.get(0).getId().equals(changed.documentId(csvFileName))
+        ));
+        verify(ingestionManifestService).markIndexed(csvFileName, List.of(changed.documentId(csvFileName)));
+        verify(vectorStore).delete(List.of(staleId));
+        verify(ingestionManifestService).remove(List.of(staleId));
+        verify(eventPublisher).publishEvent(any(IndexChangedEvent.class));
+    }
+
+    @Test
+    void testLoadOnlyReplacesDocumentsOfTheLoadedFile() {
+        // Arrange
+        LocalVectorStore localStore = mock(LocalVectorStore.class);
+        ReflectionTestUtils.setField(vectorStoreService, "vectorStore", localStore);
+        ReflectionTestUtils.setField(vectorStoreService, "seriesDocumentsEnabled", false);
+        MacroeconomicIndicator added = new MacroeconomicIndicator("Revenues", "Annual % Change", "2008/09", "18.1");
+        MacroeconomicIndicator removed = new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7");
+        Document otherFileRow = Document.builder()
+                .id("other-1")
+                .text("In 2011/12, Per Capita Outstanding Debt was 19488 Rs.")
+                .metadata(Map.of("indicator", "Per Capita Outstanding Debt", "units", "Rs.", "year", "2011/12",
+                        "value", "19488", "source", "other.csv", VectorStoreService.LEVEL, VectorStoreService.ROW_LEVEL))
+                .build();
+        Document removedRow = Document.builder()
+                .id(removed.documentId("test.csv"))
+                .text(removed.toDocumentText())
+                .metadata(Map.of("indicator", "Revenues", "units", "Annual % Change", "year", "2007/08",
+                        "value", "22.7", "source", "test.csv", VectorStoreService.LEVEL, VectorStoreService.ROW_LEVEL))
+                .build();
+        when(localStore.documents()).thenReturn(List.of(otherFileRow, removedRow));
+        when(ingestionManifestService.indexedIds("test.csv")).thenReturn(Set.of(removed.documentId("test.csv")));
+        when(csvProcessingService.streamValidData(eq("test.csv"), any())).thenReturn(Stream.of(added));
+
+        // Act
+        IngestionResult result = vectorStoreService.loadAndStoreDocuments("test.csv");
+
+        // Assert
+        assertEquals(1, result.deletedDocuments());
+        verify(localStore).delete(List.of(removed.documentId("test.csv")));
+        assertEquals(List.of("other-1"), lexicalIndexService.search("debt", 5).stream().map(Document::getId).toList());
+        assertTrue(lexicalIndexService.search("revenues", 5).stream()
+                .noneMatch(document -> document.getId().equals(removed.documentId("test.csv"))));
+        assertEquals(Optional.of("In 2011/12, Per Capita Outstanding Debt was 19488 Rs.."),
+                indicatorLookupService.answer("What was Per Capita Outstanding Debt in 2011/12?"));
+    }
+
+    @Test
+    void testRestoreIndexesRebuildsLexicalAndLookupIndexesFromStoredRows() {
+        // Arrange
+        LocalVectorStore localStore = mock(LocalVectorStore.class);
+        ReflectionTestUtils.setField(vectorStoreService, "vectorStore", localStore);
+        when(localStore.documents()).thenReturn(List.of(
+                storedDocument("row-1", "Revenues (Annual % Change) in 2007/08: 22.7", VectorStoreService.ROW_LEVEL),
+                storedDocument("series-1", "Revenues (Annual % Change), 2007/08 to 2008/09", VectorStoreService.SERIES_LEVEL)));
+
+        // Act
+        vectorStoreService.restoreIndexes();
+
+        // Assert
+        assertEquals(1, lexicalIndexService.size());
+        assertEquals("row-1", lexicalIndexService.search("revenues", 5).get(0).getId());
+        assertEquals(Optional.of("In 2007/08, Revenues was 22.7 Annual % Change."),
+                indicatorLookupService.answer("What were Revenues in 2007/08?"));
+        verify(eventPublisher).publishEvent(any(IndexChangedEvent.class));
+    }
+
+    @Test
+    void testSyncIndexesRebuildsOnlyAfterAnotherInstanceSwitchedVersion() {
+        // Arrange
+        VersionedRedisVectorStore versionedStore = mock(VersionedRedisVectorStore.class);
+        ReflectionTestUtils.setField(vectorStoreService, "vectorStore", versionedStore);
+        ReflectionTestUtils.setField(vectorStoreService, "indexSyncIntervalMs", 0L);
+        when(versionedStore.liveVersion()).thenReturn(3);
+        when(versionedStore.documents(eq(3), anyCollection())).thenReturn(List.of(
+                storedDocument("row-1", "Revenues (Annual % Change) in 2007/08: 22.7", VectorStoreService.ROW_LEVEL)));
+
+        // Act
+        vectorStoreService.syncIndexes();
+        vectorStoreService.syncIndexes();
+
+        // Assert
+        assertEquals(1, lexicalIndexService.size());
+        verify(versionedStore, times(1)).documents(eq(3), anyCollection());
+    }
+
+    @Test
+    void testLoadIntoVersionedStoreSwitchesAliasOnceComplete() {
+        // Arrange
+        MacroeconomicIndicator unchanged = new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7");
+        MacroeconomicIndicator added = new MacroeconomicIndicator("Revenues", "Annual % Change", "2008/09", "18.1");
+        String removedId = new MacroeconomicIndicator("Revenues", "Annual % Change", "2006/07", "19.0").documentId("test.csv");
+        VersionedRedisVectorStore versionedStore = mock(VersionedRedisVectorStore.class);
+        VectorStore shadow = mock(VectorStore.class);
+        ReflectionTestUtils.setField(vectorStoreService, "vectorStore", versionedStore);
+        ReflectionTestUtils.setField(vectorStoreService, "seriesDocumentsEnabled", false);
+
+        when(versionedStore.liveVersion()).thenReturn(2);
+        when(versionedStore.buildingVersion()).thenReturn(OptionalInt.empty());
+        when(versionedStore.startBuild()).thenReturn(3);
+        when(versionedStore.version(3)).thenReturn(shadow);
+        when(versionedStore.documentCount(3)).thenReturn(3L);
+        when(ingestionManifestService.indexedSources(2)).thenReturn(Map.of(
+                unchanged.documentId("test.csv"), "test.csv", removedId, "test.csv", "other-1", "other.csv"));
+        when(csvProcessingService.streamValidData(eq("test.csv"), any())).thenReturn(Stream.of(unchanged, added));
+
+        // Act
+        IngestionResult result = vectorStoreService.loadAndStoreDocuments("test.csv");
+
+        // Assert
+        assertEquals(1, result.storedDocuments());
+        assertEquals(1, result.unchangedDocuments());
+        assertEquals(1, result.deletedDocuments());
+        InOrder inOrder = inOrder(shadow, versionedStore, eventPublisher);
+        inOrder.verify(shadow).add(argThat(documents -> documents.size() == 1 && documents.get(0).getId().equals(added.documentId("test.csv"))));
+        inOrder.verify(versionedStore).copy(eq(2), eq(3), argThat(ids -> Set.copyOf(ids).equals(Set.of(unchanged.documentId("test.csv"), "other-1"))));
+        inOrder.verify(versionedStore).switchTo(3);
+        inOrder.verify(versionedStore).drop(2);
+        inOrder.verify(eventPublisher).publishEvent(any(IndexChangedEvent.class));
+        verify(ingestionManifestService).markIndexed(3, Map.of(unchanged.documentId("test.csv"), "test.csv", "other-1", "other.csv"));
+        verify(ingestionManifestService).drop(2);
+        verify(versionedStore, never()).add(any());
+    }
+
+    @Test
+    void testLoadIntoVersionedStoreKeepsLiveVersionWhenIncomplete() {
+        // Arrange
+        MacroeconomicIndicator added = new MacroeconomicIndicator("Revenues", "Annual % Change", "2008/09", "18.1");
+        VersionedRedisVectorStore versionedStore = mock(VersionedRedisVectorStore.class);
+        ReflectionTestUtils.setField(vectorStoreService, "vectorStore", versionedStore);
+        ReflectionTestUtils.setField(vectorStoreService, "seriesDocumentsEnabled", false);
+
+        when(versionedStore.liveVersion()).thenReturn(2);
+        when(versionedStore.buildingVersion()).thenReturn(OptionalInt.empty());
+        when(versionedStore.startBuild()).thenReturn(3);
+        when(versionedStore.version(3)).thenReturn(mock(VectorStore.class));
+        when(versionedStore.documentCount(3)).thenReturn(0L);
+        when(versionedStore.indexName(anyInt())).thenAnswer(invocation -> "rag-documents-index-v" + invocation.getArgument(0));
+        when(csvProcessingService.streamValidData(eq("test.csv"), any())).thenReturn(Stream.of(added));
+
+        // Act
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> vectorStoreService.loadAndStoreDocuments("test.csv"));
+
+        // Assert
+        assertEquals("Index rag-documents-index-v3 holds 0 of 1 documents; rag-documents-index-v2 stays live", exception.getMessage());
+        verify(versionedStore, never()).switchTo(anyInt());
+        verify(versionedStore, never()).drop(anyInt());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testLoadAndStoreDocumentsAddsSeriesDocuments() {
+        // Arrange
+        String csvFileName = "test.csv";
+        when(csvProcessingService.streamValidData(eq(csvFileName), any())).thenReturn(Stream.of(
+            new MacroeconomicIndicator("Revenues", "Annual % Change", "2008/09", "18.1"),
+            new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7"),
+            new MacroeconomicIndicator("Capital Expenditure", "Annual % Change", "2007/08", "15.1")
+        ));
+
+        // Act
+        IngestionResult result = vectorStoreService.loadAndStoreDocuments(csvFileName);
+
+        // Assert
+        assertEquals(4, result.totalDocuments());
+        assertEquals(4, result.storedDocuments());
+        verify(vectorStore).add(argThat(documents ->
+            documents.size() == 1
+                && documents.get(0).getText().equals(
+                    "Revenues (Annual % Change), 2007/08 to 2008/09: 2007/08 22.7; 2008/09 18.1 (-4.6). "
+                        + "Overall change from 2007/08 to 2008/09: -4.6.")
+                && documents.get(0).getMetadata().get("level").equals("series")
         ));
     }
 
+    @Test
+    void testHierarchicalSearchFillsWithRowsOfUncoveredIndicators() {
+        // Arrange
+        Document revenuesSeries = new Document("Revenues (Annual % Change), 2007/08 to 2008/09: 2007/08 22.7; 2008/09 18.1 (-4.6).",
+            Map.of("indicator", "Revenues", "level", "series"));
+        Document revenuesRow = new Document("In 2007/08, Revenues was 22.7 Annual % Change",
+            Map.of("indicator", "Revenues", "year", "2007/08", "level", "row"));
+        Document expendituresRow = new Document("In 2007/08, Capital Expenditure was 15.1 Annual % Change",
+            Map.of("indicator", "Capital Expenditure", "year", "2007/08", "level", "row"));
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenAnswer(invocation -> {
+            SearchRequest request = invocation.getArgument(0);
+            return request.getFilterExpression().toString().contains("NE")
+                ? List.of(revenuesRow, expendituresRow)
+                : List.of(revenuesSeries);
+        });
+
+        // Act
+        List<Document> results = vectorStoreService.searchSimilarDocuments("revenue trend", 2, 0.6, "hierarchical");
+
+        // Assert
+        assertEquals(List.of(revenuesSeries, expendituresRow), results);
+        verify(vectorStore, times(2)).similaritySearch(any(SearchRequest.class));
+    }
+
     @Test
     void testSearchSimilarDocuments() {
         // Arrange
@@ -84,6 +417,46 @@ class VectorStoreServiceTest {
         verify(vectorStore, times(1)).similaritySearch(any(SearchRequest.class));
     }
 
+    @Test
+    void testRepeatedSearchIsServedFromCache() {
+        // Arrange
+        Document mockDoc = new Document("In 2007/08, Revenues was 22.7 Annual % Change",
+            Map.of("indicator", "Revenues", "year", "2007/08"));
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(mockDoc));
+
+        // Act
+        List<Document> first = vectorStoreService.searchSimilarDocuments("Government revenue", 3, 0.7);
+        List<Document> second = vectorStoreService.searchSimilarDocuments("  government   revenue? ", 3, 0.7);
+        vectorStoreService.searchSimilarDocuments("government revenue", 5, 0.7);
+
+        // Assert
+        assertEquals(first, second);
+        verify(vectorStore, times(2)).similaritySearch(any(SearchRequest.class));
+    }
+
+    @Test
+    void testHybridSearchFusesLexicalAndVectorRankings() {
+        // Arrange
+        MacroeconomicIndicator revenues = new MacroeconomicIndicator("Revenues", "Annual % Change", "2007/08", "22.7");
+        MacroeconomicIndicator expenditures = new MacroeconomicIndicator("Total Government Expenditures", "Annual % Change", "2008/09", "20.8");
+        when(csvProcessingService.streamValidData(eq("test.csv"), any())).thenReturn(Stream.of(revenues, expenditures));
+        vectorStoreService.loadAndStoreDocuments("test.csv");
+
+        Document expendituresDoc = Document.builder().id(expenditures.documentId("test.csv")).text(expenditures.toDocumentText()).build();
+        Document revenuesDoc = Document.builder().id(revenues.documentId("test.csv")).text(revenues.toDocumentText()).build();
+        when(vectorStore.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(expendituresDoc, revenuesDoc));
+
+        // Act
+        List<Document> vectorResults = vectorStoreService.searchSimilarDocuments("Revenues 2007/08", 1, 0.5, "vector");
+        List<Document> hybridResults = vectorStoreService.searchSimilarDocuments("Revenues 2007/08", 1, 0.5, "hybrid");
+
+        // Assert
+        assertEquals(expenditures.documentId("test.csv"), vectorResults.get(0).getId());
+        assertEquals(1, hybridResults.size());
+        assertEquals(revenues.documentId("test.csv"), hybridResults.get(0).getId());
+        assertEquals(1.0 / 61 + 1.0 / 62, hybridResults.get(0).getScore(), 1e-9);
+    }
+
     @Test
     void testSearchWithMetadataFilter() {
         // Arrange
@@ -106,6 +479,41 @@ class VectorStoreServiceTest {
         assertEquals(1, results.size());
         assertEquals("2007/08", results.get(0).getMetadata().get("year"));
         
-        verify(vectorStore, times(1)).similaritySearch(any(SearchRequest.class));
+        ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(vectorStore, times(1)).similaritySearch(request.capture());
+        FilterExpressionBuilder b = new FilterExpressionBuilder();
+        assertEquals(new Filter.Expression(Filter.ExpressionType.AND, b.eq("yearStart", 2007).build(), b.ne("level", "series").build()),
+                request.getValue().getFilterExpression());
+    }
+
+    @Test
+    void testLoadAndStoreDocumentsAddsFilterFields() {
+        // Arrange
+        when(csvProcessingService.streamValidData(eq("test.csv"), any())).thenReturn(Stream.of(
+            new MacroeconomicIndicator("Revenues", "Annual %\nChange", "2016/17P", "1,234.5"),
+            new MacroeconomicIndicator("Revenues", "Annual %\nChange", "2015/16", "n/a")));
+        ReflectionTestUtils.setField(vectorStoreService, "seriesDocumentsEnabled", false);
+
+        // Act
+        vectorStoreService.loadAndStoreDocuments("test.csv");
+
+        // Assert
+        verify(vectorStore).add(batch.capture());
+        Map<String, Object> numeric = batch.getValue().get(0).getMetadata();
+        assertEquals("Annual % Change", numeric.get("units"));
+        assertEquals(2016, numeric.get("yearStart"));
+        assertEquals(1234.5, numeric.get("numericValue"));
+        Map<String, Object> text = batch.getValue().get(1).getMetadata();
+        assertEquals(2015, text.get("yearStart"));
+        assertFalse(text.containsKey("numericValue"));
+    }
+
+    private static Document storedDocument(String id, String text, String level) {
+        return Document.builder()
+                .id(id)
+                .text(text)
+                .metadata(Map.of("indicator", "Revenues", "units", "Annual % Change", "year", "2007/08",
+                        "value", "22.7", VectorStoreService.LEVEL, level))
+                .build();
     }
-}
\ No newline at end of file
+}